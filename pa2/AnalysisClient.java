@@ -0,0 +1,76 @@
+import java.io.*;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Client for AnalysisServer: sends each input file over one connection and
+ * prints the CFG followed by the liveness result.
+ */
+public class AnalysisClient implements Closeable {
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    AnalysisClient(SocketAddress address) throws IOException {
+        channel = (address instanceof UnixDomainSocketAddress)
+                ? SocketChannel.open(StandardProtocolFamily.UNIX) : SocketChannel.open();
+        channel.connect(address);
+        if (!(address instanceof UnixDomainSocketAddress)) {
+            // a request spans several segments; do not let Nagle hold the last one back
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), AnalysisServer.BUFFER));
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), AnalysisServer.BUFFER));
+    }
+
+    public static void main(String[] args) throws IOException {
+        String port = null, socket = null;
+        int first = 0;
+        for (; first < args.length; first++) {
+            if (args[first].equals("--port") && first + 1 < args.length) {
+                port = args[++first];
+            } else if (args[first].equals("--socket") && first + 1 < args.length) {
+                socket = args[++first];
+            } else {
+                break;
+            }
+        }
+        if (first == args.length) {
+            System.err.println("Usage: java AnalysisClient [--port N | --socket PATH] <input-file.c>...");
+            return;
+        }
+
+        try (AnalysisClient client = new AnalysisClient(AnalysisServer.parseAddress(port, socket))) {
+            for (int i = first; i < args.length; i++) {
+                String[] result = client.analyze(Files.readString(Paths.get(args[i])));
+                System.out.print(result[0]);
+                System.out.print(result[1]);
+            }
+        }
+    }
+
+    // {cfg, liveness}; an IOException carries the server's error message
+    String[] analyze(String source) throws IOException {
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+        if (in.readByte() != AnalysisServer.OK) throw new IOException(AnalysisServer.readText(in));
+        String cfg = AnalysisServer.readText(in);
+        String liveness = AnalysisServer.readText(in);
+        return new String[]{cfg, liveness};
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
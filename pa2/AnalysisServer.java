@@ -0,0 +1,220 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resident analysis server: the CFG/DFA pipeline in a long-running JVM,
+ * so requests run on JIT-compiled code and a warm ANTLR prediction cache.
+ * Listens on a localhost port or a Unix domain socket; one thread per
+ * connection (virtual threads where the JVM has them), and a connection
+ * may carry any number of requests. With --incremental, per-function
+ * results are kept in a FunctionCache shared by all connections, so a
+ * resubmitted file only re-analyzes the functions whose text changed.
+ *
+ * Protocol (big-endian ints, UTF-8 text):
+ *   request:  int length, source bytes
+ *   response: byte 0, int length, CFG text, int length, liveness text
+ *          or byte 1, int length, error message
+ */
+public class AnalysisServer implements Closeable {
+
+    static final int DEFAULT_PORT = 7777;
+    static final int MAX_REQUEST = 64 << 20;
+    static final int BUFFER = 64 << 10;
+    static final byte OK = 0, ERROR = 1;
+
+    private static final String WARMUP_SOURCE =
+            "int g;\n"
+            + "int f(int a, int b) {\n    int i, s;\n    s = 0;\n"
+            + "    for (i = 0; i < a; i = i + 1) {\n        if (i < b) { s = s + i; } else { s = s - g; }\n    }\n"
+            + "    while (s > 100) { s = s - f(s, 1); }\n    print(s);\n    return s;\n}\n";
+
+    private final ServerSocketChannel server;
+    private final ExecutorService workers = newWorkerExecutor();
+    // idle pipelines; the parser prediction cache they use is shared by all of them
+    private final ConcurrentLinkedDeque<Pipeline> idle = new ConcurrentLinkedDeque<>();
+    private final FunctionCache cache; // null: every request is analyzed from scratch
+
+    AnalysisServer(SocketAddress address) throws IOException {
+        this(address, null);
+    }
+
+    AnalysisServer(SocketAddress address, FunctionCache cache) throws IOException {
+        this.cache = cache;
+        if (address instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        } else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(address);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String port = null, socket = null;
+        int warmup = 200;
+        FunctionCache cache = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--port") && i + 1 < args.length) {
+                port = args[++i];
+            } else if (args[i].equals("--socket") && i + 1 < args.length) {
+                socket = args[++i];
+            } else if (args[i].equals("--warmup") && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--incremental")) {
+                cache = new FunctionCache();
+            } else {
+                System.err.println("Usage: java AnalysisServer [--port N | --socket PATH] [--warmup N] [--incremental]");
+                return;
+            }
+        }
+
+        SocketAddress address = parseAddress(port, socket);
+        AnalysisServer server = new AnalysisServer(address, cache);
+        server.warmUp(warmup);
+        if (address instanceof UnixDomainSocketAddress) {
+            Path path = ((UnixDomainSocketAddress) address).getPath();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> path.toFile().delete()));
+        }
+        System.err.println("AnalysisServer listening on " + server.address());
+        server.serve();
+    }
+
+    SocketAddress address() throws IOException {
+        return server.getLocalAddress();
+    }
+
+    // compile the hot paths before the first real request (not through the cache, it would only hit)
+    void warmUp(int rounds) {
+        for (int i = 0; i < rounds; i++) analyze(WARMUP_SOURCE, null);
+    }
+
+    // accept loop, returns once the server is closed
+    void serve() {
+        while (server.isOpen()) {
+            SocketChannel client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                break;
+            }
+            workers.execute(() -> handle(client));
+        }
+    }
+
+    // serve() on a background thread
+    void start() {
+        Thread t = new Thread(this::serve, "AnalysisServer-accept");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdown();
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            if (!(client.getRemoteAddress() instanceof UnixDomainSocketAddress)) {
+                client.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client), BUFFER));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client), BUFFER));
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return; // client is done
+                }
+                if (length < 0 || length > MAX_REQUEST) {
+                    writeError(out, "request too large: " + length + " bytes");
+                    out.flush();
+                    return;
+                }
+                byte[] source = new byte[length];
+                in.readFully(source);
+
+                Pipeline.Result result;
+                try {
+                    result = analyze(new String(source, StandardCharsets.UTF_8), cache);
+                } catch (RuntimeException | StackOverflowError e) {
+                    writeError(out, e.toString());
+                    out.flush();
+                    continue;
+                }
+                out.writeByte(OK);
+                writeText(out, result.cfg);
+                writeText(out, result.liveness);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // connection dropped, nothing to answer
+        }
+    }
+
+    private Pipeline.Result analyze(String source, FunctionCache cache) {
+        Pipeline pipeline = idle.poll();
+        if (pipeline == null) pipeline = new Pipeline();
+        try {
+            if (cache != null) return pipeline.analyze(source, cache);
+            return pipeline.analyze(CharStreams.fromString(source));
+        } finally {
+            idle.push(pipeline);
+        }
+    }
+
+    static void writeText(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readText(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeError(DataOutputStream out, String message) throws IOException {
+        out.writeByte(ERROR);
+        writeText(out, message);
+    }
+
+    // virtual threads if this JVM has them (Java 21+), else a cached pool of daemon threads
+    private static ExecutorService newWorkerExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "AnalysisServer-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    static SocketAddress parseAddress(String port, String socket) {
+        if (socket != null) return UnixDomainSocketAddress.of(Paths.get(socket));
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                (port != null) ? Integer.parseInt(port) : DEFAULT_PORT);
+    }
+}
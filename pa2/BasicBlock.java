@@ -5,21 +5,50 @@ import java.util.stream.Collectors;
  * BasicBlock: Node in the Control Flow Graph (CFG).
  */
 public class BasicBlock {
-    String id;
-    List<String> statements = new ArrayList<>();
+    enum Kind { ENTRY, BODY, EXIT }
+
+    final Function owner;
+    final Kind kind;
+    int ordinal; // n of funcName_Bn, BODY blocks only
+    List<Statement> statements = new ArrayList<>(); // source ranges, rendered when printed
     Set<BasicBlock> predecessors = new LinkedHashSet<>();
     Set<BasicBlock> successors = new LinkedHashSet<>();
 
-    Set<String> use = new TreeSet<>();
-    Set<String> def = new TreeSet<>();
+    // branch that ends a condition block, e.g. "if (x < 0)"; targets are annotated when printed
+    Statement branch;
+    BasicBlock thenTarget, elseTarget, loopEnd;
+
+    // symbol ids, see Function.symbols
+    SymbolSet use = new SymbolSet();
+    SymbolSet def = new SymbolSet();
+
+    int slot = -1; // position in the owning Function's BlockList
 
 
-    BasicBlock(String id) {
-        this.id = id;
+    BasicBlock(Function owner, Kind kind, int ordinal) {
+        this.owner = owner;
+        this.kind = kind;
+        this.ordinal = ordinal;
+    }
+
+    // rendered on demand, blocks only store kind + ordinal
+    String id() {
+        switch (kind) {
+            case ENTRY:
+                return owner.name + "_entry";
+            case EXIT:
+                return owner.name + "_exit";
+            default:
+                return owner.name + "_B" + ordinal;
+        }
     }
 
-    void addStatement(String stmt) {
-        statements.add(stmt.trim());
+    void addStatement(Statement stmt) {
+        statements.add(stmt);
+    }
+
+    boolean isEmpty() {
+        return statements.isEmpty() && branch == null;
     }
 
     void addSuccessor(BasicBlock successor) {
@@ -29,16 +58,38 @@ public class BasicBlock {
 
     private String getBlockNames(Collection<BasicBlock> blocks) {
         if (blocks.isEmpty()) return "-";
-        return blocks.stream().map(b -> b.id)
+        return blocks.stream().map(BasicBlock::id)
                 .sorted()
                 .collect(Collectors.joining(", "));
     }
 
+    private void appendBranch(StringBuilder sb) {
+        // a multi-line condition continues at the statement indent
+        sb.append("    ");
+        int start = sb.length();
+        branch.appendTo(sb, owner.source, owner.symbols, "    ");
+        int width = sb.length() - start; // raw length of the condition: the else padding
+        for (int i = start; i < sb.length(); i++) {
+            if (sb.charAt(i) == '\n') width -= 4;
+        }
+        if (loopEnd != null) sb.append(" # loop_end: ").append(loopEnd.id());
+        if (thenTarget != null) sb.append(" # then: ").append(thenTarget.id());
+        if (elseTarget != null) {
+            sb.append("\n    ").append(" ".repeat(width)).append(" # else: ").append(elseTarget.id());
+        }
+        sb.append("\n");
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        sb.append("@").append(id).append("\n{\n");
-        for (String stmt : statements) sb.append("    ").append(stmt.replace("\n", "\n    ")).append("\n");
+        sb.append("@").append(id()).append("\n{\n");
+        for (Statement stmt : statements) {
+            sb.append("    ");
+            stmt.appendTo(sb, owner.source, owner.symbols, "    ");
+            sb.append("\n");
+        }
+        if (branch != null) appendBranch(sb);
         sb.append("}\n");
         sb.append("Predecessors: ").append(getBlockNames(predecessors)).append("\n");
         sb.append("Successors: ").append(getBlockNames(successors)).append("\n");
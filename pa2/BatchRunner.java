@@ -0,0 +1,169 @@
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Batch mode: CFG + liveness for many .c files in one JVM.
+ * Arguments are files or directories (searched for *.c). Files are analyzed
+ * concurrently, each worker thread on its own warm Pipeline. Every input gets
+ * <out>/<name>/cfg.out and liveness.out; a timing summary goes to stdout
+ * and <out>/summary.txt. With --cache DIR, functions are looked up in (and
+ * added to) a DiskCache there, and the summary reports its hits and misses.
+ */
+public class BatchRunner {
+
+    /** Outcome of one input file. */
+    static class Job {
+        final Path source;
+        final Path outDir;
+        long analyzeNanos, writeNanos;
+        String error;
+
+        Job(Path source, Path outDir) {
+            this.source = source;
+            this.outDir = outDir;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path outRoot = Paths.get("batch.out");
+        Path cacheDir = null;
+        long cacheMax = DiskCache.DEFAULT_MAX_BYTES;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--out") && i + 1 < args.length) {
+                outRoot = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-max-mb") && i + 1 < args.length) {
+                cacheMax = Long.parseLong(args[++i]) << 20;
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: java BatchRunner [--threads N] [--out DIR] [--cache DIR [--cache-max-mb N]] <file.c | dir>...");
+            return;
+        }
+
+        List<Job> jobs = collectJobs(inputs, outRoot);
+        DiskCache disk = (cacheDir != null) ? new DiskCache(cacheDir, cacheMax) : null;
+        FunctionCache cache = (disk != null) ? new FunctionCache(FunctionCache.DEFAULT_ENTRIES, disk) : null;
+        long start = System.nanoTime();
+        run(jobs, Math.max(1, threads), cache);
+        long wall = System.nanoTime() - start;
+
+        String summary = summary(jobs, wall, threads);
+        if (disk != null) {
+            disk.close();
+            summary += disk.report() + System.lineSeparator();
+        }
+        System.out.print(summary);
+        Files.createDirectories(outRoot);
+        Files.writeString(outRoot.resolve("summary.txt"), summary);
+        for (Job job : jobs) {
+            if (job.error != null) System.exit(1);
+        }
+    }
+
+    // inputs in argument order, directories sorted; output directories are unique per input
+    static List<Job> collectJobs(List<String> inputs, Path outRoot) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        for (String in : inputs) {
+            Path p = Paths.get(in);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> walk = Files.walk(p)) {
+                    sources.addAll(walk.filter(f -> Files.isRegularFile(f) && f.toString().endsWith(".c"))
+                            .sorted().collect(Collectors.toList()));
+                }
+            } else {
+                sources.add(p);
+            }
+        }
+
+        Set<String> used = new HashSet<>();
+        List<Job> jobs = new ArrayList<>();
+        for (Path src : sources) {
+            String base = src.getFileName().toString();
+            if (base.endsWith(".c")) base = base.substring(0, base.length() - 2);
+            String name = base;
+            for (int n = 2; !used.add(name); n++) name = base + "-" + n;
+            jobs.add(new Job(src, outRoot.resolve(name)));
+        }
+        return jobs;
+    }
+
+    // cache may be null
+    static void run(List<Job> jobs, int threads, FunctionCache cache) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Job job : jobs) futures.add(pool.submit(() -> analyze(job, cache)));
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (Exception e) {
+                    // analyze() records its own failures
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void analyze(Job job, FunctionCache cache) {
+        try {
+            long t0 = System.nanoTime();
+            Pipeline.Result result = (cache != null)
+                    ? Pipeline.forThread().analyze(new String(Files.readAllBytes(job.source), StandardCharsets.UTF_8), cache)
+                    : Pipeline.forThread().analyze(CharStreams.fromPath(job.source));
+            long t1 = System.nanoTime();
+            Files.createDirectories(job.outDir);
+            Files.writeString(job.outDir.resolve("cfg.out"), result.cfg);
+            Files.writeString(job.outDir.resolve("liveness.out"), result.liveness);
+            job.analyzeNanos = t1 - t0;
+            job.writeNanos = System.nanoTime() - t1;
+        } catch (Exception | StackOverflowError e) {
+            job.error = e.toString();
+        }
+    }
+
+    static String summary(List<Job> jobs, long wallNanos, int threads) {
+        StringWriter sw = new StringWriter();
+        PrintWriter out = new PrintWriter(sw);
+        long analyze = 0, write = 0;
+        int failed = 0;
+        out.printf("%-40s %12s %12s%n", "file", "analyze ms", "write ms");
+        for (Job job : jobs) {
+            if (job.error != null) {
+                out.printf("%-40s FAILED: %s%n", job.source, job.error);
+                failed++;
+                continue;
+            }
+            out.printf("%-40s %12.2f %12.2f%n", job.source, job.analyzeNanos / 1e6, job.writeNanos / 1e6);
+            analyze += job.analyzeNanos;
+            write += job.writeNanos;
+        }
+        out.printf("%nfiles: %d (%d failed), threads: %d%n", jobs.size(), failed, threads);
+        out.printf("parses: %d, SLL -> LL fallbacks: %d%n", TwoStageParser.parses.get(), TwoStageParser.llFallbacks.get());
+        out.printf("analyze: %.2f ms, write: %.2f ms (summed over files)%n", analyze / 1e6, write / 1e6);
+        out.printf("wall: %.2f ms%n", wallNanos / 1e6);
+        out.flush();
+        return sw.toString();
+    }
+}
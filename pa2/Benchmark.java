@@ -0,0 +1,411 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.*;
+
+/**
+ * Benchmark: timing runs of the CFG/DFA pipeline on synthetic inputs.
+ * Usage: java Benchmark <scenario>
+ */
+public class Benchmark {
+
+    private static final int WARMUP = 3;
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws Exception {
+        String scenario = (args.length > 0) ? args[0] : "worklist";
+        switch (scenario) {
+            case "worklist":
+                benchWorklist();
+                break;
+            case "postorder":
+                benchPostorder();
+                break;
+            case "parallel":
+                benchParallel();
+                break;
+            case "cfg":
+                benchCfg();
+                break;
+            case "nested":
+                benchNested();
+                break;
+            case "parse":
+                benchParse();
+                break;
+            case "footprint":
+                benchFootprint();
+                break;
+            case "server":
+                benchServer();
+                break;
+            case "incremental":
+                benchIncremental();
+                break;
+            case "binary":
+                benchBinary();
+                break;
+            case "solver":
+                benchSolver();
+                break;
+            default:
+                System.err.println("Usage: java Benchmark <worklist|postorder|parallel|cfg|nested|parse|footprint|server|incremental|binary|solver>");
+        }
+    }
+
+    // liveness solver scaling on 10k-100k block functions
+    private static void benchWorklist() {
+        System.out.println("# liveness solve time (best of " + RUNS + ")");
+        System.out.printf("%10s %12s%n", "blocks", "ms");
+        for (int n : new int[]{10_000, 20_000, 50_000, 100_000}) {
+            Function f = syntheticFunction("bench", n, 64, 42);
+            Map<String, Function> fs = Map.of(f.name, f);
+            double ms = time(() -> new DFAAnalyzer(fs).run());
+            System.out.printf("%10d %12.2f%n", f.blocks.size(), ms);
+        }
+    }
+
+    // worklist vs SCC-ordered vs loop-forest solving, on generated programs and on deep loop nests
+    private static void benchSolver() {
+        DFAAnalyzer.Solver[] solvers = DFAAnalyzer.Solver.values();
+        System.out.println("# liveness, visits and ms per solver (best of " + RUNS + ")");
+        System.out.printf("%-22s %8s", "input", "blocks");
+        for (DFAAnalyzer.Solver s : solvers) System.out.printf(" %10s %8s", s.name().toLowerCase(), "ms");
+        System.out.println();
+        for (double density : new double[]{0.3, 0.9}) {
+            for (int depth : new int[]{3, 8}) {
+                String src = new ProgramGenerator().functions(64).statements(400)
+                        .depth(depth).loopDensity(density).generate();
+                benchSolvers(String.format("64 fns, loops %.1f/%d", density, depth), buildFunctions(src));
+            }
+        }
+        for (int levels : new int[]{50, 200, 800}) {
+            benchSolvers("nest of " + levels + " loops", buildFunctions(ProgramGenerator.nestedLoops(levels)));
+        }
+    }
+
+    private static void benchSolvers(String input, Map<String, Function> fs) {
+        int blocks = 0;
+        for (Function f : fs.values()) blocks += f.blocks.size();
+        System.out.printf("%-22s %8d", input, blocks);
+        for (DFAAnalyzer.Solver solver : DFAAnalyzer.Solver.values()) {
+            DFAAnalyzer dfa = new DFAAnalyzer(fs);
+            dfa.solver = solver;
+            double ms = time(dfa::run);
+            dfa.stats = new Stats("bench", 1);
+            dfa.run();
+            long visits = 0;
+            for (Function f : fs.values()) visits += dfa.stats.function(f).worklistPops;
+            System.out.printf(" %10d %8.2f", visits, ms);
+        }
+        System.out.println();
+    }
+
+    // explicit-stack DFS on a million-block function, default thread stack
+    private static void benchPostorder() {
+        Function f = syntheticFunction("bench", 1_000_000, 64, 42);
+        double ms = time(() -> {
+            f.invalidateOrder();
+            f.getPostorder();
+        });
+        System.out.printf("postorder of %d blocks: %.2f ms%n", f.blocks.size(), ms);
+    }
+
+    // per-function liveness on 1..#cores threads, 256 functions
+    private static void benchParallel() {
+        Map<String, Function> fs = new LinkedHashMap<>();
+        for (int i = 0; i < 256; i++) {
+            Function f = syntheticFunction("f" + i, 4_000, 64, i);
+            fs.put(f.name, f);
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("# liveness of 256 functions (best of " + RUNS + ")");
+        System.out.printf("%10s %12s%n", "threads", "ms");
+        for (int t = 1; t <= cores; t *= 2) {
+            int threads = t;
+            double ms = time(() -> new DFAAnalyzer(fs, threads).run());
+            System.out.printf("%10d %12.2f%n", threads, ms);
+        }
+    }
+
+    // CFG construction (visit + post-processing) on 1..#cores threads
+    private static void benchCfg() {
+        String src = new ProgramGenerator().functions(256).statements(400).generate();
+        ParseTree tree = parse(src);
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("# CFG build of 256 functions, " + src.length() / 1024 + " KiB (best of " + RUNS + ")");
+        System.out.printf("%10s %12s%n", "threads", "ms");
+        for (int t = 1; t <= cores; t *= 2) {
+            int threads = t;
+            double ms = time(() -> new CFAVisitor(threads).visit(tree));
+            System.out.printf("%10d %12.2f%n", threads, ms);
+        }
+    }
+
+    // CFG construction on deeply nested if/else chains (empty-block elimination)
+    private static void benchNested() {
+        System.out.println("# CFG build of nested if/else (best of " + RUNS + ")");
+        System.out.printf("%10s %12s%n", "depth", "ms");
+        for (int depth : new int[]{500, 1_000, 2_000, 4_000}) {
+            ParseTree tree = parse(ProgramGenerator.nestedIfs(depth));
+            double ms = time(() -> new CFAVisitor().visit(tree));
+            System.out.printf("%10d %12.2f%n", depth, ms);
+        }
+    }
+
+    // LL-only vs SLL-first parsing, with a cold (cleared) and a warm prediction cache
+    private static void benchParse() {
+        System.out.println("# parse time, LL vs two-stage SLL/LL (warm: best of " + RUNS + ")");
+        System.out.printf("%10s %12s %12s %12s %12s%n", "KiB", "LL cold", "SLL cold", "LL warm", "SLL warm");
+        for (int fns : new int[]{64, 256, 1024}) {
+            String src = new ProgramGenerator().functions(fns).statements(400).generate();
+            CommonTokenStream tokens = new CommonTokenStream(new simpleCLexer(CharStreams.fromString(src)));
+            tokens.fill();
+            simpleCParser parser = new simpleCParser(tokens);
+            Runnable ll = () -> {
+                parser.reset();
+                parser.program();
+            };
+            Runnable sll = () -> {
+                parser.reset();
+                TwoStageParser.parse(parser);
+            };
+            double llCold = cold(parser, ll), sllCold = cold(parser, sll);
+            System.out.printf("%10d %12.2f %12.2f %12.2f %12.2f%n", src.length() / 1024,
+                    llCold, sllCold, time(ll), time(sll));
+        }
+        System.out.printf("SLL -> LL fallbacks: %d of %d parses%n",
+                TwoStageParser.llFallbacks.get(), TwoStageParser.parses.get());
+    }
+
+    // one run right after clearing the (shared) parser prediction cache
+    private static double cold(simpleCParser parser, Runnable task) {
+        parser.getInterpreter().clearDFA();
+        long t0 = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - t0) / 1e6;
+    }
+
+    // retained heap of the BasicBlock graph vs the frozen CompactCFG
+    private static void benchFootprint() throws InterruptedException {
+        String src = new ProgramGenerator().functions(256).statements(400).generate();
+        long base = retainedHeap(); // everything but the CFGs
+        Map<String, Function> fs = buildFunctions(src);
+        long blocks = 0, edges = 0;
+        for (Function f : fs.values()) {
+            blocks += f.blocks.size();
+            for (BasicBlock b : f.blocks) edges += b.successors.size();
+        }
+        long graph = retainedHeap() - base;
+        for (Function f : fs.values()) f.freeze();
+        long compact = retainedHeap() - base;
+        java.lang.ref.Reference.reachabilityFence(fs);
+
+        System.out.println("# retained heap, " + fs.size() + " functions, " + blocks + " blocks, " + edges + " edges");
+        System.out.printf("%-14s %10s %14s%n", "form", "MB", "bytes/block");
+        System.out.printf("%-14s %10.1f %14.1f%n", "BasicBlock", graph / 1048576.0, (double) graph / blocks);
+        System.out.printf("%-14s %10.1f %14.1f%n", "CompactCFG", compact / 1048576.0, (double) compact / blocks);
+    }
+
+    // CFGs only, the parse tree is garbage once this returns
+    private static Map<String, Function> buildFunctions(String src) {
+        CFAVisitor visitor = new CFAVisitor();
+        visitor.visit(parse(src));
+        return visitor.getFunctions();
+    }
+
+    private static long retainedHeap() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // request latency against an in-process AnalysisServer, editor-sized files
+    private static void benchServer() throws Exception {
+        String[] files = new String[16];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = new ProgramGenerator().functions(8).statements(60).seed(i).generate();
+        }
+        try (AnalysisServer server = new AnalysisServer(new java.net.InetSocketAddress(
+                java.net.InetAddress.getLoopbackAddress(), 0))) {
+            server.start();
+            try (AnalysisClient client = new AnalysisClient(server.address())) {
+                for (int i = 0; i < 500; i++) client.analyze(files[i % files.length]);
+                long[] nanos = new long[2_000];
+                for (int i = 0; i < nanos.length; i++) {
+                    long t0 = System.nanoTime();
+                    client.analyze(files[i % files.length]);
+                    nanos[i] = System.nanoTime() - t0;
+                }
+                Arrays.sort(nanos);
+                System.out.println("# server round trip, " + files[0].length() / 1024 + " KiB files, "
+                        + nanos.length + " requests after 500 warm-up");
+                System.out.printf("p50 %.2f ms, p99 %.2f ms, max %.2f ms%n", nanos[nanos.length / 2] / 1e6,
+                        nanos[nanos.length * 99 / 100] / 1e6, nanos[nanos.length - 1] / 1e6);
+            }
+        }
+    }
+
+    // full re-analysis vs FunctionCache re-analysis after a one-line edit in one function
+    private static void benchIncremental() {
+        System.out.println("# re-analysis after a one-line edit (median of 21 edits)");
+        System.out.printf("%10s %10s %12s %12s %10s%n", "functions", "KiB", "full ms", "incr ms", "same");
+        Pipeline pipeline = new Pipeline();
+        for (int fns : new int[]{64, 256, 1024}) {
+            String src = new ProgramGenerator().functions(fns).statements(200).generate();
+            FunctionCache cache = new FunctionCache();
+            for (int i = 0; i < WARMUP; i++) {
+                pipeline.analyze(CharStreams.fromString(src));
+                pipeline.analyze(src, cache);
+            }
+            List<TopLevelScanner.Item> items = TopLevelScanner.scan(src);
+            long[] full = new long[21], incr = new long[21];
+            boolean same = true;
+            for (int i = 0; i < full.length; i++) {
+                // a new statement before the closing brace of one function
+                int close = items.get(items.size() - 1 - i % fns).end - 1;
+                String edited = src.substring(0, close) + "    edit = " + i + ";\n" + src.substring(close);
+                long t0 = System.nanoTime();
+                Pipeline.Result a = pipeline.analyze(CharStreams.fromString(edited));
+                long t1 = System.nanoTime();
+                Pipeline.Result b = pipeline.analyze(edited, cache);
+                long t2 = System.nanoTime();
+                full[i] = t1 - t0;
+                incr[i] = t2 - t1;
+                same &= a.cfg.equals(b.cfg) && a.liveness.equals(b.liveness);
+            }
+            Arrays.sort(full);
+            Arrays.sort(incr);
+            System.out.printf("%10d %10d %12.2f %12.2f %10s%n", fns, src.length() / 1024,
+                    full[full.length / 2] / 1e6, incr[incr.length / 2] / 1e6, same);
+        }
+    }
+
+    // IN sets of the whole program / of one function: regex over liveness text vs CfgBinaryReader
+    private static void benchBinary() throws java.io.IOException {
+        String src = new ProgramGenerator().functions(1024).statements(200).generate();
+        CFAVisitor visitor = new CFAVisitor();
+        visitor.visit(parse(src));
+        Map<String, Function> fs = visitor.getFunctions();
+        for (Function f : fs.values()) f.compact();
+        DFAAnalyzer dfa = new DFAAnalyzer(fs);
+        dfa.run();
+        java.io.StringWriter text = new java.io.StringWriter();
+        dfa.printResults(new java.io.PrintWriter(text));
+        String liveness = text.toString();
+
+        java.nio.file.Path file = java.nio.file.Files.createTempFile("bench", ".cfgb");
+        try {
+            long t0 = System.nanoTime();
+            try (CfgBinaryWriter writer = new CfgBinaryWriter(file, visitor.getGlobalDeclarations())) {
+                for (Function f : fs.values()) writer.write(f);
+            }
+            double write = (System.nanoTime() - t0) / 1e6;
+            String last = null;
+            for (String name : fs.keySet()) last = name;
+            String one = last;
+
+            java.util.regex.Pattern line = java.util.regex.Pattern.compile("^B(\\d+)-IN: (.*)$", java.util.regex.Pattern.MULTILINE);
+            double regex = time(() -> {
+                int sets = 0;
+                java.util.regex.Matcher m = line.matcher(liveness);
+                while (m.find()) sets += m.group(2).equals(";") ? 0 : m.group(2).split(", ").length;
+                if (sets < 0) throw new AssertionError();
+            });
+            double all = time(() -> {
+                try (CfgBinaryReader reader = new CfgBinaryReader(file)) {
+                    int sets = 0;
+                    for (String name : reader.functionNames()) {
+                        CfgBinaryReader.FunctionView f = reader.function(name);
+                        for (int b = 0; b < f.blocks; b++) sets += f.names(CfgBinaryReader.FunctionView.SetKind.IN, b).size();
+                    }
+                    if (sets < 0) throw new AssertionError();
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            double single = time(() -> {
+                try (CfgBinaryReader reader = new CfgBinaryReader(file)) {
+                    CfgBinaryReader.FunctionView f = reader.function(one);
+                    for (int b = 0; b < f.blocks; b++) f.names(CfgBinaryReader.FunctionView.SetKind.IN, b);
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+
+            System.out.println("# " + fs.size() + " functions: liveness text " + liveness.length() / 1024
+                    + " KiB, binary (CFG + sets) " + java.nio.file.Files.size(file) / 1024 + " KiB, written in "
+                    + String.format("%.2f", write) + " ms");
+            System.out.printf("%-34s %10s%n", "IN sets (best of " + RUNS + ")", "ms");
+            System.out.printf("%-34s %10.2f%n", "all, regex over liveness text", regex);
+            System.out.printf("%-34s %10.2f%n", "all, CfgBinaryReader", all);
+            System.out.printf("%-34s %10.2f%n", "one function, CfgBinaryReader", single);
+        } finally {
+            java.nio.file.Files.delete(file);
+        }
+    }
+
+    static ParseTree parse(String src) {
+        simpleCLexer lexer = new simpleCLexer(CharStreams.fromString(src));
+        simpleCParser parser = new simpleCParser(new CommonTokenStream(lexer));
+        return parser.program();
+    }
+
+    /**
+     * Build a CFG shaped like CFAVisitor output: a chain of if/else diamonds
+     * and while loops, each block using/defining random variables.
+     */
+    static Function syntheticFunction(String name, int blocks, int vars, long seed) {
+        Random rnd = new Random(seed);
+        Function f = new Function(name, "int", "", new SymbolTable());
+        int[] counter = {0};
+        java.util.function.Supplier<BasicBlock> newBlock = () -> {
+            BasicBlock b = new BasicBlock(f, BasicBlock.Kind.BODY, counter[0]++);
+            b.use.add(f.symbols.intern("v" + rnd.nextInt(vars)));
+            b.def.add(f.symbols.intern("v" + rnd.nextInt(vars)));
+            f.addBlock(b);
+            return b;
+        };
+
+        BasicBlock cur = newBlock.get();
+        f.entry.addSuccessor(cur);
+        while (counter[0] < blocks) {
+            if (rnd.nextBoolean()) {
+                // if (...) then else -> join
+                BasicBlock then = newBlock.get(), other = newBlock.get(), join = newBlock.get();
+                cur.addSuccessor(then);
+                cur.addSuccessor(other);
+                then.addSuccessor(join);
+                other.addSuccessor(join);
+                cur = join;
+            } else {
+                // while (...) body -> follow
+                BasicBlock cond = newBlock.get(), body = newBlock.get(), follow = newBlock.get();
+                cur.addSuccessor(cond);
+                cond.addSuccessor(body);
+                cond.addSuccessor(follow);
+                body.addSuccessor(cond);
+                cur = follow;
+            }
+        }
+        cur.addSuccessor(f.exit);
+        f.addBlock(f.exit);
+        return f;
+    }
+
+    // best wall time in ms over RUNS, after WARMUP untimed runs
+    static double time(Runnable task) {
+        for (int i = 0; i < WARMUP; i++) task.run();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long t0 = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - t0);
+        }
+        return best / 1e6;
+    }
+}
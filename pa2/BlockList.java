@@ -0,0 +1,108 @@
+import java.util.*;
+
+/**
+ * BlockList: insertion-ordered set of the blocks of one function.
+ * Each block remembers its slot, so add/remove/contains are O(1);
+ * removal leaves a hole that is squeezed out on the next grow or sort.
+ */
+public class BlockList extends AbstractCollection<BasicBlock> {
+    private BasicBlock[] slots = new BasicBlock[16];
+    private int end = 0;  // slots in use, holes included
+    private int size = 0;
+
+    @Override
+    public boolean add(BasicBlock b) {
+        if (contains(b)) return false;
+        if (end == slots.length) {
+            compact();
+            if (end * 2 > slots.length) slots = Arrays.copyOf(slots, slots.length * 2);
+        }
+        b.slot = end;
+        slots[end++] = b;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof BasicBlock)) return false;
+        int i = ((BasicBlock) o).slot;
+        return i >= 0 && i < end && slots[i] == o;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!contains(o)) return false;
+        BasicBlock b = (BasicBlock) o;
+        slots[b.slot] = null;
+        b.slot = -1;
+        size--;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < end; i++) {
+            if (slots[i] != null) slots[i].slot = -1;
+            slots[i] = null;
+        }
+        end = 0;
+        size = 0;
+    }
+
+    void sort(Comparator<BasicBlock> order) {
+        compact();
+        Arrays.sort(slots, 0, end, order);
+        for (int i = 0; i < end; i++) slots[i].slot = i;
+    }
+
+    private void compact() {
+        if (size == end) return;
+        int j = 0;
+        for (int i = 0; i < end; i++) {
+            BasicBlock b = slots[i];
+            if (b == null) continue;
+            b.slot = j;
+            slots[j++] = b;
+        }
+        Arrays.fill(slots, j, end, null);
+        end = j;
+    }
+
+    @Override
+    public Iterator<BasicBlock> iterator() {
+        return new Iterator<>() {
+            private int next = skip(0);
+            private int last = -1;
+
+            private int skip(int i) {
+                while (i < end && slots[i] == null) i++;
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            @Override
+            public BasicBlock next() {
+                if (next >= end) throw new NoSuchElementException();
+                last = next;
+                next = skip(next + 1);
+                return slots[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0 || slots[last] == null) throw new IllegalStateException();
+                BlockList.this.remove(slots[last]);
+            }
+        };
+    }
+}
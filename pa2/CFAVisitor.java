@@ -1,32 +1,68 @@
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.misc.Interval;
-import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
+import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * CFAVisitor: ANTLR visitor to build the Control Flow Graph (CFG).
  */
 public class CFAVisitor extends simpleCBaseVisitor<Void> {
 
-    private static final String THEN_PLACEHOLDER = "@THEN_BLOCK@";
-    private static final String ELSE_PLACEHOLDER = "@ELSE_BLOCK@";
-    private static final String FOLLOW_PLACEHOLDER = "@FOLLOW_BLOCK@";
-
-    private final VariableVisitor varVisitor = new VariableVisitor();
+    private final SymbolTable symbols;
+    private final VariableVisitor varVisitor;
     private final List<String> globalDeclarations = new ArrayList<>();
     private final Map<String, Function> functions = new LinkedHashMap<>();
-    private final Map<BasicBlock, BasicBlock> loopFollowBlocks = new HashMap<>();
-    private final Map<BasicBlock, BasicBlock> ifThenTargets = new HashMap<>();
-    private final Map<BasicBlock, BasicBlock> ifElseTargets = new HashMap<>();
     private Function currentFunction = null;
     private BasicBlock currentBlock = null;
     private int blockCounter = 0;
+    // source of the function being visited, identifiers are interned from it (see intern())
+    private CharSequence functionText;
+    private int functionStart;
+    private final int threads;
+    private final PrintWriter stream;
+    private boolean headerPrinted = false;
+
+    // false: functions keep their raw CFG (benchmarks run the passes one at a time)
+    boolean postProcess = true;
+
+    // --stats: per-function time/allocation and block counts (null: not collected)
+    Stats stats;
 
+    public CFAVisitor() {
+        this(1);
+    }
+
+    // threads > 1: each function is built by its own visitor on a thread pool
+    public CFAVisitor(int threads) {
+        this(threads, null);
+    }
+
+    /**
+     * stream != null: streaming mode, each function's CFG is printed to stream
+     * as soon as its post-processing is done, then its blocks are released
+     * (getFunctions() stays empty).
+     */
+    public CFAVisitor(int threads, PrintWriter stream) {
+        this(threads, stream, new SymbolTable());
+    }
+
+    // workers of a parallel build share the symbol table of the compilation unit
+    private CFAVisitor(int threads, PrintWriter stream, SymbolTable symbols) {
+        this.threads = Math.max(1, threads);
+        this.stream = stream;
+        this.symbols = symbols;
+        this.varVisitor = new VariableVisitor(symbols);
+    }
 
     private BasicBlock createNewBlock() {
-        String id = currentFunction.name + "_B" + blockCounter++;
-        BasicBlock b = new BasicBlock(id);
+        BasicBlock b = new BasicBlock(currentFunction, BasicBlock.Kind.BODY, blockCounter++);
         currentFunction.addBlock(b);
         return b;
     }
@@ -40,111 +76,199 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
                 new Interval(ctx.start.getStartIndex(), ctx.stop.getStopIndex()));
     }
 
+    // symbol id of an identifier, without a String per occurrence
+    private int intern(TerminalNode id) {
+        return symbols.intern(id.getSymbol(), functionText, functionStart);
+    }
+
+    // one copy of the function's text (none when mapped) instead of one per identifier
+    private void enterSource(ParserRuleContext ctx) {
+        functionText = null;
+        if (ctx.start == null || ctx.stop == null) return;
+        int start = ctx.start.getStartIndex(), stop = ctx.stop.getStopIndex();
+        if (start < 0 || stop < start) return;
+        CharStream in = ctx.start.getInputStream();
+        functionStart = start;
+        functionText = (in instanceof MappedCharStream)
+                ? ((MappedCharStream) in).view(start, stop + 1)
+                : in.getText(Interval.of(start, stop));
+    }
+
     private void ensureCurrentBlock() {
         if (currentBlock == null) currentBlock = createNewBlock();
     }
 
-    public void printCFG() {
-        System.out.println("# Control Flow Graph\n");
-        System.out.println("@globals {");
-        for (String g : globalDeclarations) System.out.println("    " + g);
-        System.out.println("}");
-        System.out.println("Predecessors: -");
-        System.out.println("Successors: -\n");
-
-        for (Function f : functions.values()) {
-            f.sortBlocks();
-            for (BasicBlock b : f.blocks) {
-                if (b == f.entry) {
-                    System.out.println("@" + f.entry.id + " {");
-                    System.out.println("    name: " + f.name);
-                    System.out.println("    ret_type: " + f.returnType);
-                    System.out.println("    args: " + f.args);
-                    System.out.println("}");
-                    String succ = "-";
-                    if (!f.entry.successors.isEmpty()) succ = f.entry.successors.iterator().next().id;
-                    System.out.println("Predecessors: -");
-                    System.out.println("Successors: " + succ + "\n");
-                } else {
-                    System.out.println(b);
-                }
+    public void printCFG(PrintWriter out) {
+        printHeader(out);
+        printFunctions(out);
+    }
+
+    // printCFG in two parts, for output assembled from separately built pieces
+    void printFunctions(PrintWriter out) {
+        for (Function f : functions.values()) printFunction(out, f);
+    }
+
+    void printHeader(PrintWriter out) {
+        out.println("# Control Flow Graph\n");
+        out.println("@globals {");
+        for (String g : globalDeclarations) out.println("    " + g);
+        out.println("}");
+        out.println("Predecessors: -");
+        out.println("Successors: -\n");
+    }
+
+    private void printFunction(PrintWriter out, Function f) {
+        f.sortBlocks();
+        for (BasicBlock b : f.blocks) {
+            if (b == f.entry) {
+                out.println("@" + f.entry.id() + " {");
+                out.println("    name: " + f.name);
+                out.println("    ret_type: " + f.returnType);
+                out.println("    args: " + f.args);
+                out.println("}");
+                String succ = "-";
+                if (!f.entry.successors.isEmpty()) succ = f.entry.successors.iterator().next().id();
+                out.println("Predecessors: -");
+                out.println("Successors: " + succ + "\n");
+            } else {
+                out.println(b);
             }
         }
     }
 
-    public Map<String, Function> getFunctions() {
-        return this.functions;
+    // a finished function is either kept for later passes or, when streaming, printed and dropped
+    private void addFunction(Function f) {
+        if (stream == null) {
+            functions.put(f.name, f);
+            return;
+        }
+        if (!headerPrinted) {
+            printHeader(stream);
+            headerPrinted = true;
+        }
+        printFunction(stream, f);
+        f.blocks.clear();
     }
 
-    // Post-processing methods
-    private void mergeEmptyBlocks(Function func) {
-        boolean changed;
-        do {
-            changed = false;
-            List<BasicBlock> toRemove = new ArrayList<>();
-            for (BasicBlock block : new ArrayList<>(func.blocks)) {
-                if (block == func.entry || block == func.exit) continue;
-                if (block.statements.isEmpty() && !block.predecessors.isEmpty() && block.successors.size() == 1) {
-                    BasicBlock successor = block.successors.iterator().next();
-                    for (BasicBlock pred : new ArrayList<>(block.predecessors)) {
-                        pred.successors.remove(block);
-                        pred.addSuccessor(successor);
-                    }
-                    successor.predecessors.remove(block);
-                    toRemove.add(block);
-                    changed = true;
-                }
+    // streaming mode: print the header if no function did yet, and flush
+    public void finishStream() {
+        if (stream == null) return;
+        if (!headerPrinted) {
+            printHeader(stream);
+            headerPrinted = true;
+        }
+        stream.flush();
+    }
+
+    /**
+     * Streaming mode parse listener: builds (and prints) each function as soon
+     * as the parser exits it, then drops its subtree, so the parse tree never
+     * holds more than one function. Call finishStream() after parsing.
+     */
+    public ParseTreeListener streamingListener() {
+        return new ParseTreeListener() {
+            @Override
+            public void visitTerminal(TerminalNode node) {
             }
-            if (!toRemove.isEmpty()) {
-                func.blocks.removeAll(toRemove);
+
+            @Override
+            public void visitErrorNode(ErrorNode node) {
             }
-        } while (changed);
-    }
 
-    private void updateTargetMappings(Function func) {
-        java.util.function.Function<BasicBlock, BasicBlock> findActualTarget = (startBlock) -> {
-            BasicBlock current = startBlock;
-            while (current != func.entry && current != func.exit &&
-                    current.statements.isEmpty() && current.successors.size() == 1) {
-                current = current.successors.iterator().next();
+            @Override
+            public void enterEveryRule(ParserRuleContext ctx) {
+            }
+
+            @Override
+            public void exitEveryRule(ParserRuleContext ctx) {
+                if (ctx instanceof simpleCParser.DeclListContext && ctx.getParent() instanceof simpleCParser.ProgramContext) {
+                    visit(ctx);
+                } else if (ctx instanceof simpleCParser.FunctionContext) {
+                    visit(ctx);
+                    ctx.getParent().removeLastChild();
+                }
             }
-            return current;
         };
-        Map<BasicBlock, BasicBlock> updatedLoopFollows = new HashMap<>();
-        for (Map.Entry<BasicBlock, BasicBlock> entry : loopFollowBlocks.entrySet()) {
-            updatedLoopFollows.put(entry.getKey(), findActualTarget.apply(entry.getValue()));
+    }
+
+    public Map<String, Function> getFunctions() {
+        return this.functions;
+    }
+
+    List<String> getGlobalDeclarations() {
+        return this.globalDeclarations;
+    }
+
+    // Post-processing methods
+
+    // blocks that fall off the end of the function flow into exit
+    void linkExitBlock(Function func) {
+        func.blocks.stream()
+                .filter(b -> b != func.exit && b.successors.isEmpty() && !b.predecessors.isEmpty())
+                .forEach(b -> b.addSuccessor(func.exit));
+        func.addBlock(func.exit);
+    }
+
+    /**
+     * Removes empty blocks (no statements, one successor, has predecessors) and
+     * re-targets the branches, in one O(V+E) pass: every block is resolved to
+     * the first non-empty block down its chain of empty blocks (memoized with
+     * path compression), then all edges are rewritten through that forwarding.
+     */
+    void mergeEmptyBlocks(Function func) {
+        Map<BasicBlock, BasicBlock> forward = new HashMap<>();
+        Set<BasicBlock> removed = new HashSet<>();
+        for (BasicBlock block : func.blocks) {
+            if (isForwarding(func, block) && !block.predecessors.isEmpty()) removed.add(block);
         }
-        loopFollowBlocks.clear();
-        loopFollowBlocks.putAll(updatedLoopFollows);
-        Map<BasicBlock, BasicBlock> updatedIfThens = new HashMap<>();
-        for (Map.Entry<BasicBlock, BasicBlock> entry : ifThenTargets.entrySet()) {
-            updatedIfThens.put(entry.getKey(), findActualTarget.apply(entry.getValue()));
+
+        // branch targets follow the chain even from empty blocks that have no predecessors
+        for (BasicBlock block : func.blocks) {
+            if (block.branch == null) continue;
+            if (block.thenTarget != null) block.thenTarget = resolve(func, block.thenTarget, forward);
+            if (block.elseTarget != null) block.elseTarget = resolve(func, block.elseTarget, forward);
+            if (block.loopEnd != null) block.loopEnd = resolve(func, block.loopEnd, forward);
         }
-        ifThenTargets.clear();
-        ifThenTargets.putAll(updatedIfThens);
-        Map<BasicBlock, BasicBlock> updatedIfElses = new HashMap<>();
-        for (Map.Entry<BasicBlock, BasicBlock> entry : ifElseTargets.entrySet()) {
-            updatedIfElses.put(entry.getKey(), findActualTarget.apply(entry.getValue()));
+        if (removed.isEmpty()) return;
+
+        // rewrite edges of the remaining blocks
+        func.blocks.removeIf(removed::contains);
+        for (BasicBlock block : func.blocks) {
+            Set<BasicBlock> succs = new LinkedHashSet<>();
+            for (BasicBlock succ : block.successors) succs.add(resolve(func, succ, forward));
+            block.successors = succs;
+            block.predecessors.clear();
+        }
+        for (BasicBlock block : func.blocks) {
+            for (BasicBlock succ : block.successors) succ.predecessors.add(block);
         }
-        ifElseTargets.clear();
-        ifElseTargets.putAll(updatedIfElses);
+        func.invalidateOrder();
     }
 
-    private void removeDeadBlocks(Function func) {
-        Set<BasicBlock> reachable = new HashSet<>();
-        Queue<BasicBlock> worklist = new LinkedList<>();
-        if (func.entry != null) {
-            reachable.add(func.entry);
-            worklist.add(func.entry);
-        }
-        while (!worklist.isEmpty()) {
-            BasicBlock current = worklist.poll();
-            for (BasicBlock succ : current.successors) {
-                if (reachable.add(succ)) {
-                    worklist.add(succ);
-                }
+    private boolean isForwarding(Function func, BasicBlock b) {
+        return b != func.entry && b != func.exit && b.isEmpty() && b.successors.size() == 1;
+    }
+
+    private BasicBlock resolve(Function func, BasicBlock b, Map<BasicBlock, BasicBlock> forward) {
+        List<BasicBlock> path = new ArrayList<>();
+        BasicBlock target = b;
+        while (isForwarding(func, target) && path.size() <= func.blocks.size()) {
+            BasicBlock known = forward.get(target);
+            if (known != null) {
+                target = known;
+                break;
             }
+            path.add(target);
+            target = target.successors.iterator().next();
         }
+        for (BasicBlock p : path) forward.put(p, target);
+        return target;
+    }
+
+    void removeDeadBlocks(Function func) {
+        // blocks visited by the DFS from entry; the order is cached for CompactCFG (liveness)
+        Set<BasicBlock> reachable = new HashSet<>(func.getPostorder());
+        reachable.remove(func.exit);
         if (func.exit != null && func.exit.predecessors.stream().anyMatch(reachable::contains)) {
             reachable.add(func.exit);
         }
@@ -154,62 +278,75 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
         }
     }
 
-    private void renumberBlocks(Function func) {
+    void renumberBlocks(Function func) {
         func.sortBlocks();
         int c = 0;
         for (BasicBlock b : func.blocks) {
-            if (b != func.entry && b != func.exit) b.id = func.name + "_B" + c++;
+            if (b != func.entry && b != func.exit) b.ordinal = c++;
         }
     }
 
-    private void updateLabels() {
-        for (Map.Entry<BasicBlock, BasicBlock> e : loopFollowBlocks.entrySet()) {
-            BasicBlock cond = e.getKey();
-            BasicBlock follow = e.getValue();
-            for (int i = 0; i < cond.statements.size(); i++) {
-                String stmt = cond.statements.get(i);
-                if (stmt.contains(FOLLOW_PLACEHOLDER)) {
-                    cond.statements.set(i, stmt.replace(FOLLOW_PLACEHOLDER, follow.id));
-                }
-            }
-        }
-        for (Map.Entry<BasicBlock, BasicBlock> e : ifThenTargets.entrySet()) {
-            BasicBlock cond = e.getKey();
-            BasicBlock thenBlock = e.getValue();
-            BasicBlock elseBlock = ifElseTargets.get(cond);
-            for (int i = 0; i < cond.statements.size(); i++) {
-                String stmt = cond.statements.get(i);
-                if (thenBlock != null && stmt.contains(THEN_PLACEHOLDER)) {
-                    stmt = stmt.replace(THEN_PLACEHOLDER, thenBlock.id);
-                }
-                if (elseBlock != null && stmt.contains(ELSE_PLACEHOLDER)) {
-                    stmt = stmt.replace(ELSE_PLACEHOLDER, elseBlock.id);
-                }
-                cond.statements.set(i, stmt);
-            }
-        }
+    // the passes of visitFunction, timed one by one
+    private void postProcess(Function func, Stats.FunctionStats fs, Stats.Span span) {
+        linkExitBlock(func);
+        span = fs.lap("linkExitBlock", span);
+        fs.blocksBeforeMerge = func.blocks.size();
+        mergeEmptyBlocks(func);
+        span = fs.lap("mergeEmptyBlocks", span);
+        fs.blocksAfterMerge = func.blocks.size();
+        removeDeadBlocks(func);
+        span = fs.lap("removeDeadBlocks", span);
+        fs.blocksAfterRemoveDead = func.blocks.size();
+        renumberBlocks(func);
+        fs.lap("renumberBlocks", span);
     }
 
     // Overridden visitor methods
     @Override
     public Void visitProgram(simpleCParser.ProgramContext ctx) {
-        visitChildren(ctx);
+        if (threads == 1 || ctx.funcList() == null) {
+            visitChildren(ctx);
+            finishStream();
+            return null;
+        }
+
+        // globals first, then functions in parallel (per-function state lives in each worker)
+        if (ctx.declList() != null) visit(ctx.declList());
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<Map<String, Function>>> tasks = new ArrayList<>();
+            for (simpleCParser.FunctionContext fctx : ctx.funcList().function()) {
+                tasks.add(pool.submit(() -> {
+                    CFAVisitor worker = new CFAVisitor(1, null, symbols);
+                    worker.stats = stats;
+                    worker.visit(fctx);
+                    return worker.functions;
+                }));
+            }
+            // merge in source order
+            for (ForkJoinTask<Map<String, Function>> t : tasks) {
+                for (Function f : t.join().values()) addFunction(f);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        finishStream();
         return null;
     }
 
     @Override
     public Void visitFunction(simpleCParser.FunctionContext ctx) {
-        loopFollowBlocks.clear();
-        ifThenTargets.clear();
-        ifElseTargets.clear();
-
+        Stats.Span span = (stats != null) ? new Stats.Span() : null;
         String fn = ctx.ID().getText();
         String rt = ctx.type().getText();
         String args = (ctx.paramList() != null) ? getFullText(ctx.paramList()) : "";
 
-        currentFunction = new Function(fn, rt, args);
-        functions.put(fn, currentFunction);
+        currentFunction = new Function(fn, rt, args, symbols);
+        Stats.FunctionStats fs = (stats != null) ? stats.function(currentFunction) : null;
+        currentFunction.source = ctx.start.getInputStream();
         blockCounter = 0;
+        enterSource(ctx);
+        varVisitor.source(functionText, functionStart);
 
         BasicBlock first = createNewBlock();
         currentFunction.entry.addSuccessor(first);
@@ -218,41 +355,43 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
         // function parameters become 'def' in entry block
         if (ctx.paramList() != null) {
             for (simpleCParser.IdentifierContext idCtx : ctx.paramList().identifier()) {
-                currentFunction.entry.def.add(idCtx.ID().getText());
+                currentFunction.entry.def.add(intern(idCtx.ID()));
             }
         }
 
         visit(ctx.compoundStmt());
 
-        currentFunction.blocks.stream()
-                .filter(b -> b != currentFunction.exit && b.successors.isEmpty() && !b.predecessors.isEmpty())
-                .forEach(b -> b.addSuccessor(currentFunction.exit));
-        currentFunction.addBlock(currentFunction.exit);
-
         // post-processing logic
-        mergeEmptyBlocks(currentFunction);
-        updateTargetMappings(currentFunction);
-        removeDeadBlocks(currentFunction);
-        renumberBlocks(currentFunction);
-        updateLabels();
+        if (fs == null) {
+            if (postProcess) {
+                linkExitBlock(currentFunction);
+                mergeEmptyBlocks(currentFunction);
+                removeDeadBlocks(currentFunction);
+                renumberBlocks(currentFunction);
+            }
+        } else {
+            span = fs.lap("visit", span);
+            if (postProcess) postProcess(currentFunction, fs, span);
+        }
 
+        addFunction(currentFunction);
         currentFunction = null;
+        functionText = null;
+        varVisitor.source(null, 0);
         return null;
     }
 
     @Override
     public Void visitDeclaration(simpleCParser.DeclarationContext ctx) {
-        String stmtText = getFullText(ctx);
         if (currentFunction == null) {
-            globalDeclarations.add(stmtText);
+            globalDeclarations.add(getFullText(ctx));
         } else {
             ensureCurrentBlock();
-            currentBlock.addStatement(stmtText);
+            currentBlock.addStatement(Statement.of(Statement.Kind.PLAIN, ctx));
 
             // calc 'def & 'use' set in declare stmt
             for (simpleCParser.IdentifierContext idCtx : ctx.identList().identifier()) {
-                String varName = idCtx.ID().getText();
-                currentBlock.def.add(varName);
+                currentBlock.def.add(intern(idCtx.ID()));
 
                 // in simpleC.g4 grammar, when declaration, we cannot init vars
                 // so don't have to calc 'use' set in declaration
@@ -265,49 +404,32 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
     @Override
     public Void visitAssignStmt(simpleCParser.AssignStmtContext ctx) {
         ensureCurrentBlock();
-        String stmtText = getFullText(ctx);
 
-        List<String> callees = new ArrayList<>();
-        collectCallees(ctx.assign().expr(), callees);
-        StringBuilder comments = new StringBuilder();
-        for (String callee : callees) {
-            comments.append(" # call in expr: ").append(callee).append(" -> ").append(callee).append("_entry");
-        }
-        currentBlock.addStatement(stmtText + comments);
+        // one walk of the RHS: used vars + called functions
+        varVisitor.collect(ctx.assign().expr());
+        currentBlock.addStatement(Statement.of(Statement.Kind.ASSIGN, ctx, varVisitor.callees()));
 
         // calc 'def & 'use' set in assign stmt
         // 1. LHS = 'def'
-        String defVar = ctx.assign().ID().getText();
-        currentBlock.def.add(defVar);
+        currentBlock.def.add(intern(ctx.assign().ID()));
 
         // 2. RHS = 'use'
-        Set<String> usedVars = varVisitor.visit(ctx.assign().expr());
-        currentBlock.use.addAll(usedVars);
+        varVisitor.addUsesTo(currentBlock.use);
 
         return null;
     }
 
-    // collectCallees helper
-    private void collectCallees(ParseTree node, List<String> out) {
-        if (node == null) return;
-        if (node instanceof simpleCParser.CallContext) {
-            out.add(((simpleCParser.CallContext) node).ID().getText());
-        }
-        for (int i = 0; i < node.getChildCount(); i++) collectCallees(node.getChild(i), out);
-    }
-
     @Override
     public Void visitCallStmt(simpleCParser.CallStmtContext ctx) {
         ensureCurrentBlock();
-        String stmtText = getFullText(ctx);
-        String callee = ctx.call().ID().getText();
-        String comment = " # call: " + callee + " -> " + callee + "_entry";
-        currentBlock.addStatement(stmtText + comment);
+        int callee = intern(ctx.call().ID());
+        currentBlock.addStatement(Statement.of(Statement.Kind.CALL, ctx, new int[]{callee}));
 
         // calc 'use' set in call stmt
         // argument = 'use'
         if (ctx.call().argList() != null) {
-            currentBlock.use.addAll(varVisitor.visit(ctx.call().argList()));
+            varVisitor.collect(ctx.call().argList());
+            varVisitor.addUsesTo(currentBlock.use);
         }
 
         return null;
@@ -316,21 +438,17 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
     @Override
     public Void visitRetStmt(simpleCParser.RetStmtContext ctx) {
         ensureCurrentBlock();
-        String stmtText = getFullText(ctx);
-        StringBuilder comments = new StringBuilder();
+        int[] callees = null;
 
         // calc 'use' set in return stmt
         if (ctx.expr() != null) {
-            currentBlock.use.addAll(varVisitor.visit(ctx.expr()));
-
-            List<String> callees = new ArrayList<>();
-            collectCallees(ctx.expr(), callees);
-            for (String callee : callees) {
-                comments.append(" # call in return: ").append(callee).append(" -> ").append(callee).append("_entry");
-            }
+            varVisitor.collect(ctx.expr());
+            varVisitor.addUsesTo(currentBlock.use);
+            callees = varVisitor.callees();
         }
 
-        currentBlock.addStatement(stmtText + comments);
+        currentBlock.addStatement((callees != null)
+                ? Statement.of(Statement.Kind.RETURN, ctx, callees) : Statement.of(Statement.Kind.RETURN, ctx));
         currentBlock.addSuccessor(currentFunction.exit);
         currentBlock = null; // block is terminated in this return line
         return null;
@@ -342,25 +460,17 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
         BasicBlock condBlock = currentBlock;
 
         // calc 'use' set in if stmt
-        currentBlock.use.addAll(varVisitor.visit(ctx.expr()));
+        varVisitor.collect(ctx.expr());
+        varVisitor.addUsesTo(currentBlock.use);
 
         // else block
         boolean hasElse = (ctx.stmt(1) != null);
-        StringBuilder line = new StringBuilder();
-        String ifCondition = "if (" + getFullText(ctx.expr()) + ")";
-        line.append(ifCondition)
-                .append(" # then: ").append(THEN_PLACEHOLDER);
-        if (hasElse) {
-            String padding = " ".repeat(ifCondition.length());
-            line.append("\n").append(padding)
-                    .append(" # else: ").append(ELSE_PLACEHOLDER);
-        }
-        condBlock.addStatement(line.toString());
+        condBlock.branch = Statement.of(Statement.Kind.IF, ctx.expr());
 
         // then block
         BasicBlock thenBlock = createNewBlock();
         condBlock.addSuccessor(thenBlock);
-        ifThenTargets.put(condBlock, thenBlock);
+        condBlock.thenTarget = thenBlock;
         BasicBlock joinBlock = createNewBlock();
 
         currentBlock = thenBlock;
@@ -370,7 +480,7 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
         if (hasElse) {
             BasicBlock elseBlock = createNewBlock();
             condBlock.addSuccessor(elseBlock);
-            ifElseTargets.put(condBlock, elseBlock);
+            condBlock.elseTarget = elseBlock;
             currentBlock = elseBlock;
             visit(ctx.stmt(1));
             if (currentBlock != null) currentBlock.addSuccessor(joinBlock);
@@ -388,15 +498,16 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
         if (prev != null) prev.addSuccessor(cond);
 
         // calc 'use' set in while stmt
-        cond.use.addAll(varVisitor.visit(ctx.expr()));
+        varVisitor.collect(ctx.expr());
+        varVisitor.addUsesTo(cond.use);
 
-        cond.addStatement("while (" + getFullText(ctx.expr()) + ") # loop_end: " + FOLLOW_PLACEHOLDER);
+        cond.branch = Statement.of(Statement.Kind.WHILE, ctx.expr());
 
         BasicBlock body = createNewBlock();
         BasicBlock follow = createNewBlock();
         cond.addSuccessor(body);
         cond.addSuccessor(follow);
-        loopFollowBlocks.put(cond, follow);
+        cond.loopEnd = follow;
 
         currentBlock = body;
         visit(ctx.stmt());
@@ -410,43 +521,41 @@ public class CFAVisitor extends simpleCBaseVisitor<Void> {
     public Void visitForStmt(simpleCParser.ForStmtContext ctx) {
         ensureCurrentBlock();
 
-        String initStmt = getFullText(ctx.assign(0)) + ";";
-        currentBlock.addStatement(initStmt);
+        currentBlock.addStatement(Statement.of(Statement.Kind.FOR_ASSIGN, ctx.assign(0)));
 
         // calc 'def' & 'use' set in for stmt
         // 1. init = 'def'
-        String initDef = ctx.assign(0).ID().getText();
-        currentBlock.def.add(initDef);
+        currentBlock.def.add(intern(ctx.assign(0).ID()));
 
         // 2. initUse = 'use'
-        Set<String> initUse = varVisitor.visit(ctx.assign(0).expr());
-        currentBlock.use.addAll(initUse);
+        varVisitor.collect(ctx.assign(0).expr());
+        varVisitor.addUsesTo(currentBlock.use);
 
         BasicBlock cond = createNewBlock();
         currentBlock.addSuccessor(cond);
 
-        cond.addStatement("for (" + getFullText(ctx.expr()) + ") # loop_end: " + FOLLOW_PLACEHOLDER);
+        cond.branch = Statement.of(Statement.Kind.FOR, ctx.expr());
 
         // 3. cond = 'use'
-        cond.use.addAll(varVisitor.visit(ctx.expr()));
+        varVisitor.collect(ctx.expr());
+        varVisitor.addUsesTo(cond.use);
 
         BasicBlock bodyAndInc = createNewBlock();
         BasicBlock follow = createNewBlock();
         cond.addSuccessor(bodyAndInc);
         cond.addSuccessor(follow);
-        loopFollowBlocks.put(cond, follow);
+        cond.loopEnd = follow;
 
         currentBlock = bodyAndInc;
         visit(ctx.stmt());
 
         if (currentBlock != null) {
-            currentBlock.addStatement(getFullText(ctx.assign(1)) + ";");
+            currentBlock.addStatement(Statement.of(Statement.Kind.FOR_ASSIGN, ctx.assign(1)));
 
             // 4. incr = 'def' & 'use'
-            String incDef = ctx.assign(1).ID().getText();
-            bodyAndInc.def.add(incDef);
-            Set<String> incUse = varVisitor.visit(ctx.assign(1).expr());
-            bodyAndInc.use.addAll(incUse);
+            bodyAndInc.def.add(intern(ctx.assign(1).ID()));
+            varVisitor.collect(ctx.assign(1).expr());
+            varVisitor.addUsesTo(bodyAndInc.use);
 
             currentBlock.addSuccessor(cond);
         }
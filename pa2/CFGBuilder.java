@@ -3,31 +3,123 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Main class to run the CFGBuilder (PA1).
  */
 public class CFGBuilder {
 
+    private static final int OUTPUT_BUFFER = 1 << 20;
+
     public static void main(String[] args) throws IOException {
-        if (args.length < 1) {
-            System.err.println("Usage: java CFGBuilder <input-file.c>");
+        int threads = 1;
+        boolean stream = false;
+        boolean mmap = false;
+        boolean withStats = false;
+        Path cacheDir = null;
+        long cacheMax = DiskCache.DEFAULT_MAX_BYTES;
+        boolean cacheReport = false;
+        String inputFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--stream")) {
+                stream = true;
+            } else if (args[i].equals("--mmap")) {
+                mmap = true;
+            } else if (args[i].equals("--stats")) {
+                withStats = true;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-max-mb") && i + 1 < args.length) {
+                cacheMax = Long.parseLong(args[++i]) << 20;
+            } else if (args[i].equals("--cache-report")) {
+                cacheReport = true;
+            } else {
+                inputFile = args[i];
+            }
+        }
+        if (inputFile == null) {
+            System.err.println("Usage: java CFGBuilder [--threads N] [--stream] [--mmap] [--stats]"
+                    + " [--cache DIR [--cache-max-mb N] [--cache-report]] <input-file.c>");
+            return;
+        }
+        // --stats: phase/function timings and counters to stats.json
+        Stats stats = withStats ? new Stats(inputFile, threads) : null;
+        Stats.Span span = withStats ? new Stats.Span() : null;
+
+        if (cacheDir != null) {
+            // --cache: whole program through the per-function disk cache (single thread, no streaming)
+            PrintWriter out = stdoutWriter();
+            DiskCache disk = new DiskCache(cacheDir, cacheMax);
+            try {
+                String source = new String(Files.readAllBytes(Paths.get(inputFile)), StandardCharsets.UTF_8);
+                out.print(Pipeline.forThread().analyze(source, new FunctionCache(FunctionCache.DEFAULT_ENTRIES, disk), stats).cfg);
+                out.flush();
+                if (withStats) {
+                    stats.lap("cache", span);
+                    stats.writeJson("stats.json");
+                }
+            } finally {
+                disk.close(); // evicts, so report afterwards
+            }
+            if (cacheReport) System.err.println(disk.report());
             return;
         }
 
-        String inputFile = args[0];
-        CharStream input = CharStreams.fromFileName(inputFile);
+        // --mmap: read an ASCII source in place instead of decoding it onto the heap
+        CharStream input = mmap ? MappedCharStream.fromFileName(inputFile) : CharStreams.fromFileName(inputFile);
         simpleCLexer lexer = new simpleCLexer(input);
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         simpleCParser parser = new simpleCParser(tokens);
-        ParseTree tree = parser.program();
+        PrintWriter out = stdoutWriter();
+
+        if (stream && threads == 1) {
+            // build and print every function while parsing, keep no finished function around
+            // (single-stage LL: printed output could not be taken back on an SLL bail-out)
+            CFAVisitor visitor = new CFAVisitor(1, out);
+            visitor.stats = stats;
+            parser.addParseListener(visitor.streamingListener());
+            parser.program();
+            visitor.finishStream();
+            if (withStats) {
+                stats.lap("stream", span); // parse, build and print interleaved
+                stats.writeJson("stats.json");
+            }
+            return;
+        }
+        ParseTree tree = TwoStageParser.parse(parser, stats);
+        if (withStats) span = stats.lap("parse", span);
 
         // 1. Create the CFG by visiting the parse tree
-        CFAVisitor visitor = new CFAVisitor();
+        CFAVisitor visitor = new CFAVisitor(threads, stream ? out : null);
+        visitor.stats = stats;
         visitor.visit(tree);
+        if (withStats) span = stats.lap("cfg", span);
 
         // 2. Print the CFG to standard output (for 'run_cfa')
-        visitor.printCFG();
+        if (!stream) visitor.printCFG(out);
+        out.flush();
+        if (withStats) {
+            stats.lap("print", span);
+            stats.writeJson("stats.json");
+        }
+    }
+
+    // stdout through one large buffer and a channel, not the synchronized, autoflushing System.out
+    private static PrintWriter stdoutWriter() {
+        FileOutputStream stdout = new FileOutputStream(FileDescriptor.out);
+        return new PrintWriter(new BufferedWriter(Channels.newWriter(stdout.getChannel(),
+                StandardCharsets.UTF_8.newEncoder(), OUTPUT_BUFFER), OUTPUT_BUFFER), false);
     }
-}
\ No newline at end of file
+}
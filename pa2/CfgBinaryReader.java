@@ -0,0 +1,337 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * CfgBinaryReader: random access to a CfgBinaryWriter file. Opening reads
+ * the header and the footer index only; function(name) maps that one
+ * record, and its accessors read the mapped bytes in place (statement
+ * text is decoded only when asked for), so one function of a multi-GB
+ * file costs its own record and no more.
+ *
+ * Usage: java CfgBinaryReader [--liveness] [--function NAME] <file.cfgb>
+ * prints the CFG (or, with --liveness, the IN/OUT sets) in the text form
+ * of CFGBuilder / DFAAnalyzer.
+ */
+public class CfgBinaryReader implements Closeable {
+
+    private final FileChannel channel;
+    private final List<String> globals = new ArrayList<>();
+    private final Map<String, long[]> index = new LinkedHashMap<>(); // name -> {offset, length}
+
+    CfgBinaryReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 12 + CfgBinaryWriter.TRAILER) throw new IOException(file + ": not a CFG binary file");
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - CfgBinaryWriter.TRAILER,
+                    CfgBinaryWriter.TRAILER);
+            long indexOffset = trailer.getLong();
+            int version = trailer.getInt();
+            if (trailer.getInt() != CfgBinaryWriter.MAGIC) throw new IOException(file + ": not a CFG binary file");
+            if (version != CfgBinaryWriter.VERSION) throw new IOException(file + ": unsupported version " + version);
+
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset,
+                    size - CfgBinaryWriter.TRAILER - indexOffset);
+            for (int n = footer.getInt(); n > 0; n--) {
+                String name = readString(footer);
+                index.put(name, new long[]{footer.getLong(), footer.getInt()});
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, indexOffset));
+            header.getInt(); // magic
+            header.getInt(); // version
+            for (int n = header.getInt(); n > 0; n--) globals.add(readString(header));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    List<String> globals() {
+        return globals;
+    }
+
+    Set<String> functionNames() {
+        return index.keySet();
+    }
+
+    /** The mapped record of one function, null if the file has none of that name. */
+    FunctionView function(String name) throws IOException {
+        long[] extent = index.get(name);
+        if (extent == null) return null;
+        return new FunctionView(channel.map(FileChannel.MapMode.READ_ONLY, extent[0], extent[1]));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** One function record; see CfgBinaryWriter.write() for the layout. */
+    static final class FunctionView {
+        enum SetKind { USE, DEF, IN, OUT }
+
+        private final ByteBuffer buf;
+        final String name, returnType, args;
+        final int blocks, entry, exit, words;
+        private final int[] varAt;            // offsets of the var name strings
+        private final int blockInfo;          // per block: kind, ordinal, then, else, loop end
+        private final int succStart, succ, predStart, pred;
+        private final int sets;               // USE, DEF, IN, OUT, blocks * words longs each
+        private final int stmtStart, branch;
+        private final int textStart, textBytes; // text offsets, then the UTF-8 bytes
+
+        private static final int BLOCK_INFO = 1 + 4 * 4;
+
+        FunctionView(ByteBuffer buf) {
+            this.buf = buf;
+            name = readString(buf);
+            returnType = readString(buf);
+            args = readString(buf);
+            blocks = buf.getInt();
+            entry = buf.getInt();
+            exit = buf.getInt();
+            varAt = new int[buf.getInt()];
+            for (int v = 0; v < varAt.length; v++) {
+                varAt[v] = buf.position();
+                buf.position(buf.position() + 4 + buf.getInt(buf.position()));
+            }
+            words = buf.getInt();
+            blockInfo = buf.position();
+            succStart = blockInfo + blocks * BLOCK_INFO;
+            succ = succStart + (blocks + 1) * 4 + 4;
+            predStart = succ + buf.getInt(succ - 4) * 4;
+            pred = predStart + (blocks + 1) * 4 + 4;
+            sets = pred + buf.getInt(pred - 4) * 4;
+            stmtStart = sets + 4 * blocks * words * 8;
+            branch = stmtStart + (blocks + 1) * 4;
+            textStart = branch + blocks * 4 + 4;
+            textBytes = textStart + (buf.getInt(textStart - 4) + 1) * 4;
+        }
+
+        int vars() {
+            return varAt.length;
+        }
+
+        String var(int v) {
+            return stringAt(varAt[v]);
+        }
+
+        byte kind(int b) {
+            return buf.get(blockInfo + b * BLOCK_INFO);
+        }
+
+        int ordinal(int b) {
+            return buf.getInt(blockInfo + b * BLOCK_INFO + 1);
+        }
+
+        int thenTarget(int b) {
+            return buf.getInt(blockInfo + b * BLOCK_INFO + 5);
+        }
+
+        int elseTarget(int b) {
+            return buf.getInt(blockInfo + b * BLOCK_INFO + 9);
+        }
+
+        int loopEnd(int b) {
+            return buf.getInt(blockInfo + b * BLOCK_INFO + 13);
+        }
+
+        String blockId(int b) {
+            switch (kind(b)) {
+                case CfgBinaryWriter.ENTRY:
+                    return name + "_entry";
+                case CfgBinaryWriter.EXIT:
+                    return name + "_exit";
+                default:
+                    return name + "_B" + ordinal(b);
+            }
+        }
+
+        int successorCount(int b) {
+            return buf.getInt(succStart + (b + 1) * 4) - buf.getInt(succStart + b * 4);
+        }
+
+        int successor(int b, int k) {
+            return buf.getInt(succ + (buf.getInt(succStart + b * 4) + k) * 4);
+        }
+
+        int predecessorCount(int b) {
+            return buf.getInt(predStart + (b + 1) * 4) - buf.getInt(predStart + b * 4);
+        }
+
+        int predecessor(int b, int k) {
+            return buf.getInt(pred + (buf.getInt(predStart + b * 4) + k) * 4);
+        }
+
+        boolean contains(SetKind set, int b, int var) {
+            long word = buf.getLong(sets + ((set.ordinal() * blocks + b) * words + (var >>> 6)) * 8);
+            return (word & (1L << var)) != 0;
+        }
+
+        // names of one block's set, in name order
+        List<String> names(SetKind set, int b) {
+            List<String> result = new ArrayList<>();
+            for (int v = 0; v < varAt.length; v++) {
+                if (contains(set, b, v)) result.add(var(v));
+            }
+            return result;
+        }
+
+        int statementCount(int b) {
+            int count = buf.getInt(stmtStart + (b + 1) * 4) - buf.getInt(stmtStart + b * 4);
+            return hasBranch(b) ? count - 1 : count;
+        }
+
+        String statement(int b, int k) {
+            return text(buf.getInt(stmtStart + b * 4) + k);
+        }
+
+        /** UTF-8 bytes of a statement, a view of the mapped record. */
+        ByteBuffer statementBytes(int b, int k) {
+            int t = buf.getInt(stmtStart + b * 4) + k;
+            int from = textBytes + buf.getInt(textStart + t * 4);
+            int to = textBytes + buf.getInt(textStart + (t + 1) * 4);
+            return buf.duplicate().position(from).limit(to).slice();
+        }
+
+        boolean hasBranch(int b) {
+            return buf.getInt(branch + b * 4) >= 0;
+        }
+
+        String branch(int b) {
+            return text(buf.getInt(branch + b * 4));
+        }
+
+        private String text(int t) {
+            int from = textBytes + buf.getInt(textStart + t * 4);
+            int to = textBytes + buf.getInt(textStart + (t + 1) * 4);
+            byte[] bytes = new byte[to - from];
+            buf.get(from, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String stringAt(int at) {
+            byte[] bytes = new byte[buf.getInt(at)];
+            buf.get(at + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // === text output, same as CFAVisitor.printCFG / DFAAnalyzer.printResults ===
+
+    void printHeader(PrintWriter out) {
+        out.println("# Control Flow Graph\n");
+        out.println("@globals {");
+        for (String g : globals) out.println("    " + g);
+        out.println("}");
+        out.println("Predecessors: -");
+        out.println("Successors: -\n");
+    }
+
+    static void printFunction(PrintWriter out, FunctionView f) {
+        for (int b = 0; b < f.blocks; b++) {
+            if (b == f.entry) {
+                out.println("@" + f.blockId(b) + " {");
+                out.println("    name: " + f.name);
+                out.println("    ret_type: " + f.returnType);
+                out.println("    args: " + f.args);
+                out.println("}");
+                out.println("Predecessors: -");
+                out.println("Successors: " + (f.successorCount(b) > 0 ? f.blockId(f.successor(b, 0)) : "-") + "\n");
+                continue;
+            }
+            StringBuilder sb = new StringBuilder();
+            sb.append("@").append(f.blockId(b)).append("\n{\n");
+            for (int k = 0; k < f.statementCount(b); k++) {
+                sb.append("    ").append(f.statement(b, k).replace("\n", "\n    ")).append("\n");
+            }
+            if (f.hasBranch(b)) {
+                String condition = f.branch(b);
+                sb.append("    ").append(condition.replace("\n", "\n    "));
+                if (f.loopEnd(b) >= 0) sb.append(" # loop_end: ").append(f.blockId(f.loopEnd(b)));
+                if (f.thenTarget(b) >= 0) sb.append(" # then: ").append(f.blockId(f.thenTarget(b)));
+                if (f.elseTarget(b) >= 0) {
+                    sb.append("\n    ").append(" ".repeat(condition.length())).append(" # else: ")
+                            .append(f.blockId(f.elseTarget(b)));
+                }
+                sb.append("\n");
+            }
+            sb.append("}\n");
+            List<String> preds = new ArrayList<>(), succs = new ArrayList<>();
+            for (int k = 0; k < f.predecessorCount(b); k++) preds.add(f.blockId(f.predecessor(b, k)));
+            for (int k = 0; k < f.successorCount(b); k++) succs.add(f.blockId(f.successor(b, k)));
+            sb.append("Predecessors: ").append(blockNames(preds)).append("\n");
+            sb.append("Successors: ").append(blockNames(succs)).append("\n");
+            out.println(sb);
+        }
+    }
+
+    static void printLiveness(PrintWriter out, FunctionView f) {
+        for (int b = 0; b < f.blocks; b++) {
+            if (f.kind(b) != CfgBinaryWriter.BODY) continue;
+            out.println("B" + f.ordinal(b) + "-IN: " + formatSet(f.names(FunctionView.SetKind.IN, b)));
+            out.println("B" + f.ordinal(b) + "-OUT: " + formatSet(f.names(FunctionView.SetKind.OUT, b)));
+        }
+    }
+
+    private static String blockNames(List<String> ids) {
+        if (ids.isEmpty()) return "-";
+        Collections.sort(ids);
+        return String.join(", ", ids);
+    }
+
+    private static String formatSet(List<String> set) {
+        return set.isEmpty() ? ";" : String.join(", ", set);
+    }
+
+    static String readString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean liveness = false;
+        String only = null;
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--liveness")) {
+                liveness = true;
+            } else if (args[i].equals("--function") && i + 1 < args.length) {
+                only = args[++i];
+            } else {
+                file = args[i];
+            }
+        }
+        if (file == null) {
+            System.err.println("Usage: java CfgBinaryReader [--liveness] [--function NAME] <file.cfgb>");
+            return;
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        try (CfgBinaryReader reader = new CfgBinaryReader(Paths.get(file))) {
+            if (!liveness && only == null) reader.printHeader(out);
+            for (String name : (only != null) ? List.of(only) : reader.functionNames()) {
+                FunctionView f = reader.function(name);
+                if (f == null) {
+                    System.err.println("no function " + name + " in " + file);
+                    continue;
+                }
+                if (liveness) printLiveness(out, f);
+                else printFunction(out, f);
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * CfgBinaryWriter: CFG + liveness of a program in a compact binary file,
+ * one function record at a time, so nothing but the current record is
+ * held in memory. The function index goes into the footer on close();
+ * CfgBinaryReader maps single records through it.
+ *
+ * Layout (big-endian; string = int byte length + UTF-8 bytes):
+ *   header:   int MAGIC, int VERSION, int globals count, globals (strings)
+ *   records:  one per function, see write()
+ *   index:    int count, per function: name (string), long offset, int length
+ *   trailer:  long index offset, int VERSION, int MAGIC
+ */
+public class CfgBinaryWriter implements Closeable {
+
+    static final int MAGIC = 0x43464742; // "CFGB"
+    static final int VERSION = 1;
+    static final int TRAILER = 16;
+
+    static final byte ENTRY = 0, BODY = 1, EXIT = 2;
+
+    private final FileChannel out;
+    private long position;
+    private final List<String> names = new ArrayList<>();
+    private final List<long[]> extents = new ArrayList<>(); // {offset, length}
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+
+    CfgBinaryWriter(Path file, List<String> globals) throws IOException {
+        out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        DataOutputStream data = begin();
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(globals.size());
+        for (String g : globals) writeString(data, g);
+        flush(data);
+    }
+
+    /**
+     * One function record; the function must still have its blocks and its
+     * liveness (write it after DFAAnalyzer.run(), before Function.freeze()).
+     *   name, return type, args (strings)
+     *   int blocks, int entry, int exit (block index, -1 if none)
+     *   int vars, var names (strings, bit order), int words (longs per set)
+     *   per block: byte kind, int ordinal, int then, int else, int loop end (-1 if none)
+     *   int[blocks + 1] succ start, int succ count, int[] succ, same for pred
+     *   long[blocks * words] each of USE, DEF, IN, OUT
+     *   int[blocks + 1] statement start, int[blocks] branch statement (-1 if none)
+     *   int statements, int[statements + 1] text start, text bytes (UTF-8, no indent)
+     */
+    void write(Function f) throws IOException {
+        Liveness lv = f.liveness;
+        CompactCFG cfg = lv.cfg;
+        f.sortBlocks();
+        BasicBlock[] blocks = f.blocks.toArray(new BasicBlock[0]);
+        if (blocks.length != cfg.size) throw new IllegalStateException("CFG of " + f.name + " changed after compaction");
+        Map<BasicBlock, Integer> index = new IdentityHashMap<>(blocks.length * 2);
+        for (int i = 0; i < blocks.length; i++) index.put(blocks[i], i);
+
+        DataOutputStream data = begin();
+        writeString(data, f.name);
+        writeString(data, f.returnType);
+        writeString(data, f.args);
+        data.writeInt(cfg.size);
+        data.writeInt(cfg.entry);
+        data.writeInt(cfg.exit);
+        data.writeInt(cfg.vars.length);
+        for (int v : cfg.vars) writeString(data, cfg.symbols.name(v));
+        data.writeInt(cfg.words);
+
+        for (int b = 0; b < blocks.length; b++) {
+            BasicBlock block = blocks[b];
+            data.writeByte(b == cfg.entry ? ENTRY : b == cfg.exit ? EXIT : BODY);
+            data.writeInt(cfg.ordinal[b]);
+            data.writeInt(indexOf(index, block.thenTarget));
+            data.writeInt(indexOf(index, block.elseTarget));
+            data.writeInt(indexOf(index, block.loopEnd));
+        }
+        writeInts(data, cfg.succStart);
+        data.writeInt(cfg.succ.length);
+        writeInts(data, cfg.succ);
+        writeInts(data, cfg.predStart);
+        data.writeInt(cfg.pred.length);
+        writeInts(data, cfg.pred);
+        for (long[] sets : new long[][]{cfg.use, cfg.def, lv.in, lv.out}) {
+            for (long w : sets) data.writeLong(w);
+        }
+
+        // statements, then the branch, of every block in one text table
+        List<byte[]> texts = new ArrayList<>();
+        int[] branch = new int[blocks.length];
+        StringBuilder sb = new StringBuilder();
+        for (int b = 0; b < blocks.length; b++) {
+            data.writeInt(texts.size());
+            for (Statement s : blocks[b].statements) texts.add(render(sb, s, f));
+            branch[b] = -1;
+            if (blocks[b].branch != null) {
+                branch[b] = texts.size();
+                texts.add(render(sb, blocks[b].branch, f));
+            }
+        }
+        data.writeInt(texts.size());
+        writeInts(data, branch);
+        data.writeInt(texts.size());
+        int at = 0;
+        for (byte[] t : texts) {
+            data.writeInt(at);
+            at += t.length;
+        }
+        data.writeInt(at);
+        for (byte[] t : texts) data.write(t);
+
+        names.add(f.name);
+        extents.add(new long[]{position, data.size()});
+        flush(data);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (out) {
+            long indexOffset = position;
+            DataOutputStream data = begin();
+            data.writeInt(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                writeString(data, names.get(i));
+                data.writeLong(extents.get(i)[0]);
+                data.writeInt((int) extents.get(i)[1]);
+            }
+            data.writeLong(indexOffset);
+            data.writeInt(VERSION);
+            data.writeInt(MAGIC);
+            flush(data);
+        }
+    }
+
+    private static int indexOf(Map<BasicBlock, Integer> index, BasicBlock b) {
+        Integer i = (b != null) ? index.get(b) : null;
+        return (i != null) ? i : -1;
+    }
+
+    private static byte[] render(StringBuilder sb, Statement s, Function f) {
+        sb.setLength(0);
+        s.appendTo(sb, f.source, f.symbols, "");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // records are built in memory, then appended to the file in one write
+    private DataOutputStream begin() {
+        buffer.reset();
+        return new DataOutputStream(buffer);
+    }
+
+    private void flush(DataOutputStream data) throws IOException {
+        data.flush();
+        ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+        while (bytes.hasRemaining()) position += out.write(bytes);
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        for (int v : values) data.writeInt(v);
+    }
+
+    static void writeString(DataOutputStream data, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(b.length);
+        data.write(b);
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.*;
+
+/**
+ * CompactCFG: frozen, array-only form of one Function's CFG for the data-flow
+ * passes. Blocks are 0..size-1 in print order (entry first, exit last), edges
+ * are CSR offset/target arrays in both directions, and USE/DEF are bitsets
+ * over the function's variables (bit order == name order), one flat long[]
+ * each. Built once after CFAVisitor post-processing; see Function.compact().
+ */
+public final class CompactCFG {
+    final String name;
+    final SymbolTable symbols;
+    final int size, entry, exit;
+    final int[] ordinal;          // block -> n of funcName_Bn
+
+    // successors of b are succ[succStart[b] .. succStart[b + 1]), same for pred
+    final int[] succStart, succ;
+    final int[] predStart, pred;
+
+    final int[] vars;             // bit -> symbol id, in name order
+    final int words;              // longs per set
+    final long[] use, def;        // set of b: words [b * words, (b + 1) * words)
+
+    final int[] postorder;        // DFS postorder number -> block (reachable blocks only)
+    final int[] postorderNumber;  // block -> postorder number, -1 if unreachable
+
+    private CompactCFG(Function f) {
+        name = f.name;
+        symbols = f.symbols;
+        f.sortBlocks();
+        BasicBlock[] blocks = f.blocks.toArray(new BasicBlock[0]);
+        size = blocks.length;
+        Map<BasicBlock, Integer> index = new IdentityHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) index.put(blocks[i], i);
+        entry = index.getOrDefault(f.entry, -1);
+        exit = index.getOrDefault(f.exit, -1);
+
+        ordinal = new int[size];
+        for (int i = 0; i < size; i++) ordinal[i] = blocks[i].ordinal;
+
+        succStart = new int[size + 1];
+        predStart = new int[size + 1];
+        succ = edges(blocks, index, succStart, true);
+        pred = edges(blocks, index, predStart, false);
+
+        // variables once, sorted so that bit order == name order
+        SymbolSet ids = new SymbolSet();
+        for (BasicBlock b : blocks) {
+            for (int k = 0; k < b.use.size(); k++) ids.add(b.use.get(k));
+            for (int k = 0; k < b.def.size(); k++) ids.add(b.def.get(k));
+        }
+        Integer[] byName = new Integer[ids.size()];
+        for (int i = 0; i < byName.length; i++) byName[i] = ids.get(i);
+        Arrays.sort(byName, Comparator.comparing(symbols::name));
+        vars = new int[byName.length];
+        Map<Integer, Integer> bit = new HashMap<>(byName.length * 2);
+        for (int i = 0; i < byName.length; i++) {
+            vars[i] = byName[i];
+            bit.put(byName[i], i);
+        }
+        words = (vars.length + 63) >>> 6;
+
+        use = new long[size * words];
+        def = new long[size * words];
+        for (int i = 0; i < size; i++) {
+            BasicBlock b = blocks[i];
+            for (int k = 0; k < b.use.size(); k++) set(use, i, bit.get(b.use.get(k)));
+            for (int k = 0; k < b.def.size(); k++) set(def, i, bit.get(b.def.get(k)));
+        }
+
+        // the Function's cached DFS order (usually left by removeDeadBlocks), as block indices
+        postorderNumber = new int[size];
+        Arrays.fill(postorderNumber, -1);
+        int[] order = new int[size];
+        int n = 0;
+        for (BasicBlock b : f.getPostorder()) {
+            Integer i = index.get(b);
+            if (i == null) continue; // not in the function: an exit dropped by removeDeadBlocks
+            postorderNumber[i] = n;
+            order[n++] = i;
+        }
+        postorder = Arrays.copyOf(order, n);
+    }
+
+    static CompactCFG of(Function f) {
+        return new CompactCFG(f);
+    }
+
+    // CSR arrays of one direction, edges to blocks outside the function are dropped
+    private static int[] edges(BasicBlock[] blocks, Map<BasicBlock, Integer> index, int[] start, boolean forward) {
+        int count = 0;
+        for (int i = 0; i < blocks.length; i++) {
+            start[i] = count;
+            for (BasicBlock t : forward ? blocks[i].successors : blocks[i].predecessors) {
+                if (index.containsKey(t)) count++;
+            }
+        }
+        start[blocks.length] = count;
+        int[] targets = new int[count];
+        int e = 0;
+        for (BasicBlock b : blocks) {
+            for (BasicBlock t : forward ? b.successors : b.predecessors) {
+                Integer j = index.get(t);
+                if (j != null) targets[e++] = j;
+            }
+        }
+        return targets;
+    }
+
+    private void set(long[] sets, int block, int bit) {
+        sets[block * words + (bit >>> 6)] |= 1L << bit;
+    }
+
+    boolean isBody(int b) {
+        return b != entry && b != exit;
+    }
+
+    // names of the set bits of one block's set, in name order
+    List<String> names(long[] sets, int block) {
+        List<String> result = new ArrayList<>();
+        int base = block * words;
+        for (int w = 0; w < words; w++) {
+            long word = sets[base + w];
+            while (word != 0) {
+                result.add(symbols.name(vars[(w << 6) + Long.numberOfTrailingZeros(word)]));
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+}
@@ -6,7 +6,13 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Main class to do Liveness Analysis (Data Flow Analyzer)
@@ -14,144 +20,282 @@ import java.util.*;
 public class DFAAnalyzer {
 
     private final Map<String, Function> functions;
-    private final Map<BasicBlock, Set<String>> inSet = new HashMap<>();
-    private final Map<BasicBlock, Set<String>> outSet = new HashMap<>();
+    private final int threads;
+
+    // --stats: per-function time/allocation and worklist counters (null: not collected)
+    Stats stats;
+
+    /** Fixpoint strategy; both give the same (least) solution. */
+    enum Solver {
+        WORKLIST, // one worklist over all blocks
+        SCC,      // strongly connected components sinks first, see SccSolver
+        LOOPS     // one pass per natural loop, see LoopForestSolver; worklist if irreducible
+    }
+
+    Solver solver = Solver.SCC;
 
     public DFAAnalyzer(Map<String, Function> functions) {
+        this(functions, 1);
+    }
+
+    // threads > 1: functions are solved concurrently, results are kept per Function
+    public DFAAnalyzer(Map<String, Function> functions, int threads) {
         this.functions = functions;
-        for (Function f : functions.values()) {
-            for (BasicBlock b : f.blocks) {
-                inSet.put(b, new TreeSet<>());
-                outSet.put(b, new TreeSet<>());
-            }
-        }
+        this.threads = Math.max(1, threads);
     }
 
     public static void main(String[] args) throws IOException {
-        if (args.length < 1) {
-            System.err.println("Usage: java DFAAnalyzer <input-file.c>");
+        int threads = 1;
+        boolean mmap = false;
+        boolean withStats = false;
+        Path cacheDir = null;
+        long cacheMax = DiskCache.DEFAULT_MAX_BYTES;
+        boolean cacheReport = false;
+        String binaryFile = null;
+        Solver solver = null;
+        String inputFile = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--mmap")) {
+                mmap = true;
+            } else if (args[i].equals("--stats")) {
+                withStats = true;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDir = Paths.get(args[++i]);
+            } else if (args[i].equals("--cache-max-mb") && i + 1 < args.length) {
+                cacheMax = Long.parseLong(args[++i]) << 20;
+            } else if (args[i].equals("--cache-report")) {
+                cacheReport = true;
+            } else if (args[i].equals("--binary") && i + 1 < args.length) {
+                binaryFile = args[++i];
+            } else if (args[i].equals("--solver") && i + 1 < args.length) {
+                solver = Solver.valueOf(args[++i].toUpperCase());
+            } else {
+                inputFile = args[i];
+            }
+        }
+        String usage = "Usage: java DFAAnalyzer [--threads N] [--mmap] [--stats] [--binary FILE] [--solver worklist|scc|loops]"
+                + " [--cache DIR [--cache-max-mb N] [--cache-report]] <input-file.c>";
+        if (inputFile == null) {
+            System.err.println(usage);
+            return;
+        }
+        if (cacheDir != null && (binaryFile != null || solver != null)) {
+            // cached entries are output text only: no CFG to write, no solver to pick
+            System.err.println("--cache cannot be combined with --binary or --solver");
+            System.err.println(usage);
+            System.exit(2);
+        }
+        if (solver == null) solver = Solver.SCC;
+        Stats stats = withStats ? new Stats(inputFile, threads) : null;
+        Stats.Span span = withStats ? new Stats.Span() : null;
+
+        if (cacheDir != null) {
+            // --cache: whole program through the per-function disk cache (single thread)
+            DiskCache disk = new DiskCache(cacheDir, cacheMax);
+            try {
+                String source = new String(Files.readAllBytes(Paths.get(inputFile)), StandardCharsets.UTF_8);
+                String liveness = Pipeline.forThread()
+                        .analyze(source, new FunctionCache(FunctionCache.DEFAULT_ENTRIES, disk), stats).liveness;
+                try (PrintWriter writer = new PrintWriter(new FileWriter("liveness.out"))) {
+                    writer.print(liveness);
+                }
+                if (withStats) {
+                    stats.lap("cache", span);
+                    stats.writeJson("stats.json");
+                }
+            } finally {
+                disk.close(); // evicts, so report afterwards
+            }
+            if (cacheReport) System.err.println(disk.report());
             return;
         }
 
         // 1. ANTLR parsing
-        CharStream input = CharStreams.fromFileName(args[0]);
+        CharStream input = mmap ? MappedCharStream.fromFileName(inputFile) : CharStreams.fromFileName(inputFile);
         simpleCLexer lexer = new simpleCLexer(input);
         CommonTokenStream tokens = new CommonTokenStream(lexer);
         simpleCParser parser = new simpleCParser(tokens);
-        ParseTree tree = parser.program();
+        ParseTree tree = TwoStageParser.parse(parser, stats);
+        if (withStats) span = stats.lap("parse", span);
 
         // 2. build CFG
-        CFAVisitor cfaVisitor = new CFAVisitor();
+        CFAVisitor cfaVisitor = new CFAVisitor(threads);
+        cfaVisitor.stats = stats;
         cfaVisitor.visit(tree);
         Map<String, Function> allFunctions = cfaVisitor.getFunctions();
+        if (withStats) span = stats.lap("cfg", span);
+        // only the compact CFG is needed from here (--binary: statements too, until written)
+        for (Function f : allFunctions.values()) {
+            Stats.Span compact = withStats ? new Stats.Span() : null;
+            if (binaryFile != null) f.compact();
+            else f.freeze();
+            if (withStats) stats.function(f).lap("compact", compact);
+        }
+        if (withStats) span = stats.lap("compact", span);
 
         // 3. Liveness Analysis
-        DFAAnalyzer dfa = new DFAAnalyzer(allFunctions);
+        DFAAnalyzer dfa = new DFAAnalyzer(allFunctions, threads);
+        dfa.stats = stats;
+        dfa.solver = solver;
         dfa.run();
+        if (withStats) span = stats.lap("liveness", span);
+
+        // --binary: CFG + liveness, one function record at a time
+        if (binaryFile != null) {
+            try (CfgBinaryWriter writer = new CfgBinaryWriter(Paths.get(binaryFile), cfaVisitor.getGlobalDeclarations())) {
+                for (Function f : allFunctions.values()) {
+                    writer.write(f);
+                    f.freeze();
+                }
+            }
+            if (withStats) span = stats.lap("binary", span);
+        }
 
         // 4. print out to file
         dfa.printResults("liveness.out");
+        if (withStats) {
+            stats.lap("print", span);
+            stats.writeJson("stats.json");
+        }
     }
 
     public void run() {
-        for (Function f : functions.values()) {
-            runOnFunction(f);
+        if (threads == 1 || functions.size() < 2) {
+            for (Function f : functions.values()) {
+                runOnFunction(f);
+            }
+            return;
+        }
+
+        // functions are independent: one task per function
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (Function f : functions.values()) {
+                tasks.add(pool.submit(() -> runOnFunction(f)));
+            }
+            for (ForkJoinTask<?> t : tasks) t.join();
+        } finally {
+            pool.shutdown();
         }
     }
 
     private void runOnFunction(Function func) {
-        // postorder CFG list
-        List<BasicBlock> postorder = getPostorder(func);
+        Stats.FunctionStats fs = (stats != null) ? stats.function(func) : null;
+        Stats.Span span = (fs != null) ? new Stats.Span() : null;
 
+        // frozen CFG: CSR edges, bitset USE/DEF, postorder numbers (built once per function)
+        CompactCFG cfg = func.compact();
+        Liveness lv = new Liveness(cfg);
+        func.liveness = lv;
+        switch (solver) {
+            case SCC:
+                SccSolver.solve(cfg, lv, fs);
+                break;
+            case LOOPS:
+                if (!LoopForestSolver.solve(cfg, lv, fs)) solveWorklist(cfg, lv, fs);
+                break;
+            default:
+                solveWorklist(cfg, lv, fs);
+        }
+        if (fs != null) fs.lap("liveness", span);
+    }
+
+    // one worklist over all blocks of the function
+    private static void solveWorklist(CompactCFG cfg, Liveness lv, Stats.FunctionStats fs) {
         // 2. generate priority queue (worklist) w/ postorder idx
         // TODO: should this be reverse post order (dfs) ??
-        PriorityQueue<BasicBlock> worklist = new PriorityQueue<>(
-                Comparator.comparingInt(postorder::indexOf)
-        );
+        Worklist worklist = new Worklist(cfg.postorder.length);
 
         // 3. add all blocks (except entry, exit) in work list
         // TODO: should entry block also be in the work list ?? (we added parameter in the entry block def set)
-        for (BasicBlock b : func.blocks) {
-            if (b != func.entry && b != func.exit) {
-                worklist.add(b);
+        for (int b = 0; b < cfg.size; b++) {
+            if (cfg.isBody(b) && cfg.postorderNumber[b] >= 0) {
+                worklist.add(cfg.postorderNumber[b]);
             }
         }
 
-        // 4. iterate w/ worklist algorithm
+        // 4. iterate w/ worklist algorithm (bit-vector sets, no allocation per pop)
+        long[] newIn = new long[cfg.words];
+        long pops = 0, inChanges = 0;
+        int peak = worklist.size();
         while (!worklist.isEmpty()) {
-            BasicBlock B = worklist.poll();
-
-            // 4-1. OUT[B] = UNION(IN[S]) for all successors S of B
-            Set<String> newOut = new TreeSet<>();
-            for (BasicBlock succ : B.successors) {
-                newOut.addAll(inSet.get(succ));
-            }
-            outSet.put(B, newOut);
-
-            // 4-2. IN[B] = USE[B] + (OUT[B] - DEF[B])
-            Set<String> newIn = new TreeSet<>(B.use);
-            Set<String> outMinusDef = new TreeSet<>(newOut);
-            outMinusDef.removeAll(B.def);
-            newIn.addAll(outMinusDef);
+            int b = cfg.postorder[worklist.poll()];
+            pops++;
 
-            // 4-3. check if IN[B] changed
-            if (!inSet.get(B).equals(newIn)) {
-                inSet.put(B, newIn);
+            // 4-1..4-3. recompute OUT[B] and IN[B], check if IN[B] changed
+            if (transfer(cfg, lv, b, newIn)) {
+                inChanges++;
 
                 // 4-4. if so, put all predecessors of B to the worklist
-                for (BasicBlock pred : B.predecessors) {
-                    if (pred != func.entry && !worklist.contains(pred)) {
-                        worklist.add(pred);
+                for (int e = cfg.predStart[b]; e < cfg.predStart[b + 1]; e++) {
+                    int p = cfg.pred[e];
+                    if (p != cfg.entry && cfg.postorderNumber[p] >= 0) {
+                        worklist.add(cfg.postorderNumber[p]);
                     }
                 }
+                peak = Math.max(peak, worklist.size());
             }
         }
-    }
 
-    private List<BasicBlock> getPostorder(Function func) {
-        List<BasicBlock> order = new ArrayList<>();
-        Set<BasicBlock> visited = new HashSet<>();
-
-        dfsPostorder(func.entry, visited, order);
-
-        // extra check for reachability
-        if (!visited.contains(func.exit)) {
-            dfsPostorder(func.exit, visited, order);
+        if (fs != null) {
+            fs.worklistPops = pops;
+            fs.inChanges = inChanges;
+            fs.peakWorklist = peak;
         }
-        return order;
     }
 
-    private void dfsPostorder(BasicBlock b, Set<BasicBlock> visited, List<BasicBlock> order) {
-        if (b == null || visited.contains(b)) {
-            return;
+    /**
+     * OUT[B] = UNION(IN[S]) for all successors S of B, then
+     * IN[B] = USE[B] + (OUT[B] - DEF[B]); true if IN[B] changed.
+     * newIn is scratch space of cfg.words longs.
+     */
+    static boolean transfer(CompactCFG cfg, Liveness lv, int b, long[] newIn) {
+        int words = cfg.words;
+        long[] use = cfg.use, def = cfg.def, in = lv.in, out = lv.out;
+        int base = b * words;
+
+        Arrays.fill(out, base, base + words, 0L);
+        for (int e = cfg.succStart[b]; e < cfg.succStart[b + 1]; e++) {
+            int s = cfg.succ[e] * words;
+            for (int w = 0; w < words; w++) out[base + w] |= in[s + w];
         }
-        visited.add(b);
-        // TODO: i traversed successor but same reason, is this ok ??
-        for (BasicBlock succ : b.successors) {
-            dfsPostorder(succ, visited, order);
+
+        boolean changed = false;
+        for (int w = 0; w < words; w++) {
+            newIn[w] = use[base + w] | (out[base + w] & ~def[base + w]);
+            if (newIn[w] != in[base + w]) changed = true;
         }
-        order.add(b);
+        if (changed) System.arraycopy(newIn, 0, in, base, words);
+        return changed;
     }
 
     public void printResults(String filename) throws IOException {
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (Function f : functions.values()) {
-                f.sortBlocks();
-                for (BasicBlock b : f.blocks) {
-                    // ignore entry / exit block
-                    if (b == f.entry || b == f.exit) continue;
-
-                    // TODO: in the pa2 spec., the function name is not presented but how could we distinguish several functions ??
-                    String blockName = b.id.substring(f.name.length() + 1);
-                    writer.println(blockName + "-IN: " + formatSet(inSet.get(b)));
-                    writer.println(blockName + "-OUT: " + formatSet(outSet.get(b)));
-                }
+            printResults(writer);
+        }
+    }
+
+    public void printResults(PrintWriter writer) {
+        for (Function f : functions.values()) {
+            Liveness lv = f.liveness;
+            CompactCFG cfg = lv.cfg;
+            for (int b = 0; b < cfg.size; b++) {
+                // ignore entry / exit block
+                if (!cfg.isBody(b)) continue;
+
+                // TODO: in the pa2 spec., the function name is not presented but how could we distinguish several functions ??
+                String blockName = "B" + cfg.ordinal[b];
+                writer.println(blockName + "-IN: " + formatSet(cfg.names(lv.in, b)));
+                writer.println(blockName + "-OUT: " + formatSet(cfg.names(lv.out, b)));
             }
         }
     }
 
     // formatSet helper
-    private String formatSet(Set<String> set) {
+    private String formatSet(List<String> set) {
         if (set == null || set.isEmpty()) {
             return ";";
         }
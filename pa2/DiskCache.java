@@ -0,0 +1,241 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DiskCache: FunctionCache entries on local disk, shared by runs and by
+ * concurrent processes. One file per entry, <dir>/<version>/<xx>/<key>,
+ * where <version> is a hash of the class files that produce the output,
+ * so a rebuilt tool never reads entries of an older one.
+ *
+ * Entries are written to a temp file and renamed into place, so readers
+ * see a whole entry or none; a hit touches the file's mtime, and close()
+ * evicts least recently used entries (oldest mtime first, across all
+ * versions) down to 90% of the size cap, under a file lock so that only
+ * one process evicts at a time. An entry that vanishes or is unreadable
+ * is a miss.
+ */
+public class DiskCache implements AutoCloseable {
+
+    static final long DEFAULT_MAX_BYTES = 256L << 20;
+
+    private static final int MAGIC = 0x43464731; // "CFG1"
+    private static final String TMP = ".tmp";
+    private static final long STALE_TMP_MILLIS = 60 * 60 * 1000;
+
+    // the classes whose code decides what an entry contains
+    private static final String[] VERSIONED = {
+            "simpleCLexer", "simpleCParser", "SymbolTable", "SymbolSet", "Statement", "BasicBlock",
+            "BlockList", "Function", "CompactCFG", "VariableVisitor", "CFAVisitor", "Liveness",
+            "Worklist", "SccSolver", "LoopForestSolver", "DFAAnalyzer", "TopLevelScanner", "FunctionCache", "Pipeline", "DiskCache"
+    };
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+    final AtomicLong writes = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+
+    private final Path root;
+    private final Path dir;
+    private final long maxBytes;
+
+    DiskCache(Path root, long maxBytes) throws IOException {
+        this.root = root;
+        this.dir = root.resolve(toolVersion());
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+    }
+
+    FunctionCache.Entry get(FunctionCache.Key key) {
+        Path file = file(key);
+        FunctionCache.Entry e = null;
+        try {
+            e = decode(Files.readAllBytes(file));
+        } catch (IOException ex) {
+            // absent, evicted meanwhile or unreadable: a miss
+        }
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            // evicted meanwhile or read-only: only the LRU order suffers
+        }
+        return e;
+    }
+
+    void put(FunctionCache.Key key, FunctionCache.Entry entry) {
+        Path file = file(key);
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), TMP);
+            Files.write(tmp, encode(entry));
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            writes.incrementAndGet();
+        } catch (IOException e) {
+            // a full or read-only disk only costs the cache
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /** Evicts down to the size cap if this process wrote anything. */
+    @Override
+    public void close() throws IOException {
+        if (writes.get() > 0) evict();
+    }
+
+    synchronized void evict() throws IOException {
+        try (FileChannel lockFile = FileChannel.open(root.resolve("lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = tryLock(lockFile)) {
+            if (lock == null) return; // another process, or another DiskCache here, is evicting
+
+            List<Path> files = new ArrayList<>();
+            List<BasicFileAttributes> attrs = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            // other processes rename entries into place and evict meanwhile: whatever vanishes is skipped
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path p, BasicFileAttributes a) {
+                    if (!a.isRegularFile() || p.getParent().equals(root)) return FileVisitResult.CONTINUE;
+                    if (p.getFileName().toString().endsWith(TMP)) {
+                        // left behind by a process that died between write and rename
+                        if (now - a.lastModifiedTime().toMillis() > STALE_TMP_MILLIS) {
+                            try {
+                                Files.deleteIfExists(p);
+                            } catch (IOException e) {
+                                // not ours to delete after all
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                    files.add(p);
+                    attrs.add(a);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path p, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path d, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            long total = 0;
+            for (BasicFileAttributes a : attrs) total += a.size();
+            if (total <= maxBytes) return;
+
+            Integer[] order = new Integer[files.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, Comparator.comparing(i -> attrs.get(i).lastModifiedTime()));
+            long target = maxBytes / 10 * 9;
+            for (int i = 0; i < order.length && total > target; i++) {
+                try {
+                    if (Files.deleteIfExists(files.get(order[i]))) evictions.incrementAndGet();
+                } catch (IOException e) {
+                    // in use or not ours: left for a later eviction
+                }
+                total -= attrs.get(order[i]).size();
+            }
+        }
+    }
+
+    // file locks are per JVM: another DiskCache on the same directory may hold it already
+    private static FileLock tryLock(FileChannel lockFile) throws IOException {
+        try {
+            return lockFile.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    String report() {
+        long h = hits.get(), m = misses.get();
+        return String.format("disk cache %s: %d hits, %d misses (%.1f%% hit rate), %d written, %d evicted",
+                dir, h, m, (h + m == 0) ? 0.0 : 100.0 * h / (h + m), writes.get(), evictions.get());
+    }
+
+    private Path file(FunctionCache.Key key) {
+        String hex = String.format("%016x%016x", key.high, key.low);
+        return dir.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+    }
+
+    // === entry format: magic, then name (empty for the globals header), CFG and liveness text ===
+
+    static byte[] encode(FunctionCache.Entry e) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        writeText(out, e.name == null ? "" : e.name);
+        writeText(out, e.cfg);
+        writeText(out, e.liveness);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static FunctionCache.Entry decode(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getInt() != MAGIC) return null;
+            String name = readText(in);
+            String cfg = readText(in);
+            String liveness = readText(in);
+            if (in.hasRemaining()) return null;
+            return new FunctionCache.Entry(name.isEmpty() ? null : name, cfg, liveness);
+        } catch (RuntimeException e) {
+            return null; // truncated or not an entry
+        }
+    }
+
+    private static void writeText(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readText(ByteBuffer in) {
+        byte[] b = new byte[in.getInt()];
+        in.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    // first 64 bits of a SHA-256 over the VERSIONED class files, as loaded
+    static String toolVersion() throws IOException {
+        MessageDigest sha = FunctionCache.sha256();
+        for (String name : VERSIONED) {
+            try (InputStream in = DiskCache.class.getResourceAsStream("/" + name + ".class")) {
+                if (in == null) throw new IOException("class file not found: " + name);
+                sha.update(in.readAllBytes());
+            }
+        }
+        byte[] digest = sha.digest();
+        return String.format("%016x", ByteBuffer.wrap(digest).getLong());
+    }
+}
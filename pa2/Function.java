@@ -1,35 +1,113 @@
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import org.antlr.v4.runtime.CharStream;
+
+import java.util.*;
 
 /**
  * Function: Represents a function in the program, containing its CFG.
  */
 public class Function {
     String name, returnType, args;
-    List<BasicBlock> blocks = new ArrayList<>();
+    BlockList blocks = new BlockList();
     BasicBlock entry, exit;
+    final SymbolTable symbols; // names of the symbol ids in use/def sets
+    CharStream source;         // input the block statements point into
+    Liveness liveness; // set by DFAAnalyzer
+
+    // entry first, exit last, body blocks by ordinal
+    static final Comparator<BasicBlock> BLOCK_ORDER = (a, b) -> (a.kind != b.kind)
+            ? Integer.compare(a.kind.ordinal(), b.kind.ordinal())
+            : Integer.compare(a.ordinal, b.ordinal);
+
+    // blocks is known to be in BLOCK_ORDER (blocks are mostly appended in order)
+    private boolean sorted = true;
+    private BasicBlock lastAdded;
+
+    // cached DFS postorder, computed once per function (see getPostorder)
+    private List<BasicBlock> postorder;
 
-    Function(String name, String returnType, String args) {
+    private CompactCFG compact; // see compact()
+
+    Function(String name, String returnType, String args, SymbolTable symbols) {
         this.name = name;
         this.returnType = returnType;
         this.args = args;
-        this.entry = new BasicBlock(name + "_entry");
-        this.exit = new BasicBlock(name + "_exit");
+        this.symbols = symbols;
+        this.entry = new BasicBlock(this, BasicBlock.Kind.ENTRY, 0);
+        this.exit = new BasicBlock(this, BasicBlock.Kind.EXIT, 0);
         addBlock(entry);
     }
 
     void addBlock(BasicBlock block) {
-        if (!blocks.contains(block)) blocks.add(block);
+        if (!blocks.add(block)) return; // no-op if already present, O(1)
+        if (lastAdded != null && BLOCK_ORDER.compare(lastAdded, block) > 0) sorted = false;
+        lastAdded = block;
+    }
+
+    /**
+     * DFS postorder over successors, starting at entry (exit is appended if
+     * it is unreachable). Uses an explicit stack, so CFG depth never touches
+     * the native stack.
+     */
+    List<BasicBlock> getPostorder() {
+        if (postorder != null) return postorder;
+
+        List<BasicBlock> order = new ArrayList<>();
+        Set<BasicBlock> visited = new HashSet<>();
+        Deque<BasicBlock> blockStack = new ArrayDeque<>();
+        Deque<Iterator<BasicBlock>> succStack = new ArrayDeque<>();
+        for (BasicBlock root : new BasicBlock[]{entry, exit}) {
+            if (root == null || !visited.add(root)) continue;
+            blockStack.push(root);
+            succStack.push(root.successors.iterator());
+            while (!blockStack.isEmpty()) {
+                Iterator<BasicBlock> it = succStack.peek();
+                if (it.hasNext()) {
+                    BasicBlock succ = it.next();
+                    if (visited.add(succ)) {
+                        blockStack.push(succ);
+                        succStack.push(succ.successors.iterator());
+                    }
+                } else {
+                    BasicBlock b = blockStack.pop();
+                    succStack.pop();
+                    order.add(b);
+                }
+            }
+        }
+        postorder = Collections.unmodifiableList(order);
+        return postorder;
+    }
+
+    // must be called whenever edges change after an order was computed
+    void invalidateOrder() {
+        postorder = null;
+        compact = null;
+    }
+
+    // array form of the CFG for the data-flow passes, built once (blocks must be final)
+    CompactCFG compact() {
+        if (compact == null) compact = CompactCFG.of(this);
+        return compact;
+    }
+
+    /**
+     * Keep only the compact CFG: drops the BasicBlock graph (and its
+     * statements), so printCFG has nothing to print for this function afterwards.
+     */
+    void freeze() {
+        compact();
+        blocks = new BlockList();
+        source = null;
+        entry = null;
+        exit = null;
+        postorder = null;
+        lastAdded = null;
+        sorted = true;
     }
 
     void sortBlocks() {
-        blocks.sort(Comparator.comparing(b -> {
-            if (b.id.endsWith("_entry")) return "00";
-            if (b.id.endsWith("_exit")) return "ZZ";
-            String d = b.id.replaceAll("[^0-9]", "");
-            if (d.isEmpty()) return "999999";
-            return String.format("%06d", Integer.parseInt(d));
-        }));
+        if (sorted) return;
+        blocks.sort(BLOCK_ORDER);
+        sorted = true;
     }
-}
\ No newline at end of file
+}
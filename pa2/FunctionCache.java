@@ -0,0 +1,134 @@
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * FunctionCache: results of single functions (and of the global declaration
+ * block) keyed by a SHA-256 fingerprint of their source text, for
+ * Pipeline.analyze(String, FunctionCache). An entry holds what the function
+ * contributes to the output: its post-processed CFG and its IN/OUT sets,
+ * as printed. Thread-safe, least recently used entries are dropped first.
+ * With a DiskCache behind it, misses are looked up on disk and new
+ * entries are written through, so results outlive the process.
+ *
+ * A function's output depends on its own text only (globals are not
+ * special to the CFG or to liveness), so the text is the whole key; if a
+ * pass ever reads the global declarations, they must go into the key too.
+ */
+public class FunctionCache {
+
+    static final int DEFAULT_ENTRIES = 1 << 16;
+
+    static final byte GLOBALS = 0, FUNCTION = 1;
+
+    static final class Entry {
+        final String name; // function name, null for the globals header
+        final String cfg;
+        final String liveness;
+
+        Entry(String name, String cfg, String liveness) {
+            this.name = name;
+            this.cfg = cfg;
+            this.liveness = liveness;
+        }
+    }
+
+    /** 128 bits of the SHA-256 of kind + text. */
+    static final class Key {
+        final long high, low;
+
+        Key(long high, long low) {
+            this.high = high;
+            this.low = low;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).high == high && ((Key) o).low == low;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(high ^ low);
+        }
+    }
+
+    final AtomicLong hits = new AtomicLong();
+    final AtomicLong misses = new AtomicLong();
+
+    private final Map<Key, Entry> entries;
+    private final DiskCache disk; // may be null
+
+    FunctionCache() {
+        this(DEFAULT_ENTRIES, null);
+    }
+
+    FunctionCache(int maxEntries, DiskCache disk) {
+        this.disk = disk;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    Entry get(Key key) {
+        Entry e;
+        synchronized (this) {
+            e = entries.get(key);
+        }
+        if (e == null && disk != null) {
+            e = disk.get(key);
+            if (e != null) {
+                synchronized (this) {
+                    entries.put(key, e);
+                }
+            }
+        }
+        (e != null ? hits : misses).incrementAndGet();
+        return e;
+    }
+
+    void put(Key key, Entry entry) {
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+        if (disk != null) disk.put(key, entry);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // chars [start, end) of s, UTF-16 code units hashed as they are
+    static Key key(byte kind, CharSequence s, int start, int end) {
+        MessageDigest sha = sha256();
+        sha.update(kind);
+        byte[] chunk = new byte[Math.min(8192, 2 * (end - start) + 2)]; // even length
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            chunk[n++] = (byte) (c >>> 8);
+            chunk[n++] = (byte) c;
+            if (n == chunk.length) {
+                sha.update(chunk, 0, n);
+                n = 0;
+            }
+        }
+        sha.update(chunk, 0, n);
+        ByteBuffer digest = ByteBuffer.wrap(sha.digest());
+        return new Key(digest.getLong(), digest.getLong());
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has SHA-256
+        }
+    }
+}
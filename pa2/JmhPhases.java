@@ -0,0 +1,105 @@
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.*;
+
+/**
+ * JmhPhases: the default-package side of jmh.Phases (see there).
+ * Not part of the drivers; compiled by the 'jmh' Makefile target only.
+ */
+public class JmhPhases implements jmh.Phases {
+
+    /** Functions of one program plus the visitor whose passes run on them. */
+    private static final class Cfg {
+        final CFAVisitor visitor;
+        final Map<String, Function> functions;
+
+        Cfg(CFAVisitor visitor) {
+            this.visitor = visitor;
+            this.functions = visitor.getFunctions();
+        }
+    }
+
+    @Override
+    public String generate(int functions, int statements, int depth, double loopDensity, int vars, long seed) {
+        return new ProgramGenerator().functions(functions).statements(statements).depth(depth)
+                .loopDensity(loopDensity).vars(vars).seed(seed).generate();
+    }
+
+    @Override
+    public Object lex(String source) {
+        CommonTokenStream tokens = new CommonTokenStream(new simpleCLexer(CharStreams.fromString(source)));
+        tokens.fill();
+        return tokens;
+    }
+
+    @Override
+    public Object parse(Object tokens) {
+        CommonTokenStream stream = (CommonTokenStream) tokens;
+        stream.seek(0);
+        return TwoStageParser.parse(new simpleCParser(stream));
+    }
+
+    @Override
+    public Object collectVariables(Object tree) {
+        VariableVisitor visitor = new VariableVisitor(new SymbolTable());
+        visitor.collect((ParseTree) tree);
+        SymbolSet uses = new SymbolSet();
+        visitor.addUsesTo(uses);
+        return uses;
+    }
+
+    @Override
+    public Object buildCfg(Object tree) {
+        CFAVisitor visitor = new CFAVisitor();
+        visitor.visit((ParseTree) tree);
+        return new Cfg(visitor);
+    }
+
+    @Override
+    public Object buildRawCfg(Object tree) {
+        CFAVisitor visitor = new CFAVisitor();
+        visitor.postProcess = false;
+        visitor.visit((ParseTree) tree);
+        return new Cfg(visitor);
+    }
+
+    @Override
+    public void linkExitBlocks(Object cfg) {
+        Cfg c = (Cfg) cfg;
+        for (Function f : c.functions.values()) c.visitor.linkExitBlock(f);
+    }
+
+    @Override
+    public void mergeEmptyBlocks(Object cfg) {
+        Cfg c = (Cfg) cfg;
+        for (Function f : c.functions.values()) c.visitor.mergeEmptyBlocks(f);
+    }
+
+    @Override
+    public void removeDeadBlocks(Object cfg) {
+        Cfg c = (Cfg) cfg;
+        for (Function f : c.functions.values()) c.visitor.removeDeadBlocks(f);
+    }
+
+    @Override
+    public void renumberBlocks(Object cfg) {
+        Cfg c = (Cfg) cfg;
+        for (Function f : c.functions.values()) c.visitor.renumberBlocks(f);
+    }
+
+    @Override
+    public Object compact(Object cfg) {
+        List<CompactCFG> result = new ArrayList<>();
+        for (Function f : ((Cfg) cfg).functions.values()) result.add(CompactCFG.of(f));
+        return result;
+    }
+
+    @Override
+    public Object solveLiveness(Object cfg) {
+        Map<String, Function> functions = ((Cfg) cfg).functions;
+        new DFAAnalyzer(functions).run();
+        return functions;
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Liveness: IN/OUT bitsets of one function, over the blocks and variables of
+ * its CompactCFG (set of block b: words [b * words, (b + 1) * words)).
+ */
+public class Liveness {
+    final CompactCFG cfg;
+    final long[] in, out;
+
+    Liveness(CompactCFG cfg) {
+        this.cfg = cfg;
+        this.in = new long[cfg.size * cfg.words];
+        this.out = new long[cfg.size * cfg.words];
+    }
+}
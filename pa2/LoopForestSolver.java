@@ -0,0 +1,233 @@
+import java.util.Arrays;
+
+/**
+ * LoopForestSolver: liveness without a fixpoint loop on reducible CFGs,
+ * which is every CFG CFAVisitor builds from structured if/while/for.
+ *
+ * One postorder pass over all blocks covers the paths that take no back
+ * edge. Then each natural loop gets one postorder pass over its blocks,
+ * outermost loop first, which carries the header's IN set back from the
+ * latches. A simple path takes back edges only to headers of loops that
+ * enclose its start, innermost first, so a header's IN is already final
+ * when its loop's pass runs, and the passes see every path a fixpoint
+ * would. A loop whose latches already hold the header's IN is skipped.
+ *
+ * The SSA version of this (live at the header means live in the whole
+ * loop, so two passes in total) does not apply: a loop body may redefine
+ * a variable before using it, hence one pass per loop instead.
+ *
+ * Reducibility is checked while the natural loops are collected: walking
+ * back from a latch must not reach the entry without passing the header,
+ * i.e. the header dominates the latch. solve() returns false on an
+ * irreducible CFG, before touching lv.
+ */
+final class LoopForestSolver {
+
+    /** Natural loops by header, inner before outer, with their nesting and direct members. */
+    private static final class Forest {
+        final int[] header;      // loop -> header block
+        final int[] latchStart;  // loop -> range in latch
+        final int[] latch;
+        final int[] memberStart; // loop -> range in member: blocks whose innermost loop it is
+        final int[] member;
+        final int[] childStart;  // loop -> range in child: loops directly inside
+        final int[] child;
+
+        Forest(int[] header, int[] latchStart, int[] latch, int[] memberStart, int[] member,
+               int[] childStart, int[] child) {
+            this.header = header;
+            this.latchStart = latchStart;
+            this.latch = latch;
+            this.memberStart = memberStart;
+            this.member = member;
+            this.childStart = childStart;
+            this.child = child;
+        }
+
+        int size() {
+            return header.length;
+        }
+    }
+
+    private LoopForestSolver() {
+    }
+
+    static boolean solve(CompactCFG cfg, Liveness lv, Stats.FunctionStats fs) {
+        Forest forest = forest(cfg);
+        if (forest == null) return false;
+
+        long[] newIn = new long[cfg.words];
+        long visits = 0, inChanges = 0;
+        int passes = 0;
+
+        // 1. paths without back edges
+        for (int b : cfg.postorder) {
+            if (!cfg.isBody(b)) continue;
+            visits++;
+            if (DFAAnalyzer.transfer(cfg, lv, b, newIn)) inChanges++;
+        }
+
+        // 2. paths through the back edges of each loop; loops are found inner first, so go backwards
+        int[] blocks = new int[cfg.postorder.length];
+        int[] stack = new int[forest.size()];
+        for (int l = forest.size() - 1; l >= 0; l--) {
+            if (!stale(cfg, lv, forest, l)) continue;
+            passes++;
+            int n = 0, sp = 0;
+            stack[sp++] = l;
+            while (sp > 0) {
+                int m = stack[--sp];
+                for (int i = forest.memberStart[m]; i < forest.memberStart[m + 1]; i++) {
+                    blocks[n++] = cfg.postorderNumber[forest.member[i]];
+                }
+                for (int i = forest.childStart[m]; i < forest.childStart[m + 1]; i++) stack[sp++] = forest.child[i];
+            }
+            Arrays.sort(blocks, 0, n);
+            for (int i = 0; i < n; i++) {
+                visits++;
+                if (DFAAnalyzer.transfer(cfg, lv, cfg.postorder[blocks[i]], newIn)) inChanges++;
+            }
+        }
+
+        if (fs != null) {
+            fs.worklistPops = visits;
+            fs.inChanges = inChanges;
+            fs.loops = forest.size();
+            fs.loopPasses = passes;
+        }
+        return true;
+    }
+
+    // some latch's OUT misses part of the header's IN
+    private static boolean stale(CompactCFG cfg, Liveness lv, Forest forest, int l) {
+        int words = cfg.words;
+        int h = forest.header[l] * words;
+        for (int i = forest.latchStart[l]; i < forest.latchStart[l + 1]; i++) {
+            int base = forest.latch[i] * words;
+            for (int w = 0; w < words; w++) {
+                if ((lv.in[h + w] & ~lv.out[base + w]) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The loop-nesting forest. Headers are taken in postorder, so inner
+     * loops first; a found loop is collapsed into its header (union-find),
+     * which keeps the backward walks from latches linear overall. Null if
+     * a walk reaches the entry, i.e. the header does not dominate a latch.
+     */
+    private static Forest forest(CompactCFG cfg) {
+        int size = cfg.size;
+        int[] rep = new int[size];        // union-find: block -> header of the outermost loop found so far
+        int[] innermost = new int[size];  // block -> innermost loop, -1 if none
+        int[] mark = new int[size];
+        int[] stack = new int[size];
+        for (int b = 0; b < size; b++) rep[b] = b;
+        Arrays.fill(innermost, -1);
+        Arrays.fill(mark, -1);
+
+        IntList headers = new IntList(), latchStart = new IntList(), latches = new IntList(), parent = new IntList();
+        for (int i = 0; i < cfg.postorder.length; i++) {
+            int h = cfg.postorder[i];
+            int l = headers.size;
+            int first = latches.size;
+            int sp = 0;
+            mark[h] = i;
+            // retreating edges t -> h: h is a DFS ancestor of t (or t itself)
+            for (int e = cfg.predStart[h]; e < cfg.predStart[h + 1]; e++) {
+                int t = cfg.pred[e];
+                int n = cfg.postorderNumber[t];
+                if (n < 0 || n > i) continue;
+                latches.add(t);
+                int x = find(rep, t);
+                if (mark[x] != i) {
+                    mark[x] = i;
+                    stack[sp++] = x;
+                }
+            }
+            if (latches.size == first) continue;
+            headers.add(h);
+            latchStart.add(first);
+            parent.add(-1);
+            innermost[h] = l;
+
+            while (sp > 0) {
+                int x = stack[--sp];
+                if (innermost[x] < 0) innermost[x] = l;     // a block of this loop only
+                else parent.set(innermost[x], l);           // the header of a collapsed inner loop
+                rep[x] = h;
+                for (int e = cfg.predStart[x]; e < cfg.predStart[x + 1]; e++) {
+                    int p = cfg.pred[e];
+                    if (cfg.postorderNumber[p] < 0) continue;
+                    int y = find(rep, p);
+                    if (mark[y] == i) continue;
+                    if (y == cfg.entry) return null; // reached without passing h: irreducible
+                    mark[y] = i;
+                    stack[sp++] = y;
+                }
+            }
+        }
+        int loops = headers.size;
+        latchStart.add(latches.size);
+
+        // members and children per loop, bucketed (CSR)
+        int[] memberStart = new int[loops + 1];
+        int[] childStart = new int[loops + 1];
+        for (int b = 0; b < size; b++) {
+            if (innermost[b] >= 0) memberStart[innermost[b] + 1]++;
+        }
+        for (int l = 0; l < loops; l++) {
+            if (parent.get(l) >= 0) childStart[parent.get(l) + 1]++;
+        }
+        for (int l = 0; l < loops; l++) {
+            memberStart[l + 1] += memberStart[l];
+            childStart[l + 1] += childStart[l];
+        }
+        int[] member = new int[memberStart[loops]];
+        int[] child = new int[childStart[loops]];
+        int[] fill = Arrays.copyOf(memberStart, loops);
+        for (int b = 0; b < size; b++) {
+            if (innermost[b] >= 0) member[fill[innermost[b]]++] = b;
+        }
+        fill = Arrays.copyOf(childStart, loops);
+        for (int l = 0; l < loops; l++) {
+            if (parent.get(l) >= 0) child[fill[parent.get(l)]++] = l;
+        }
+        return new Forest(headers.toArray(), latchStart.toArray(), latches.toArray(),
+                memberStart, member, childStart, child);
+    }
+
+    private static int find(int[] rep, int b) {
+        int root = b;
+        while (rep[root] != root) root = rep[root];
+        while (rep[b] != root) {
+            int next = rep[b];
+            rep[b] = root;
+            b = next;
+        }
+        return root;
+    }
+
+    private static final class IntList {
+        int[] items = new int[16];
+        int size;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        void set(int i, int v) {
+            items[i] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
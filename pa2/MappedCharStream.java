@@ -0,0 +1,146 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedCharStream: an ANTLR CharStream over a memory-mapped source file.
+ * simpleC tokens are ASCII (see the ID / INTNUM / FLOATNUM rules), so for an
+ * ASCII file one byte is one char and the file is never decoded onto the
+ * heap. view() hands out zero-copy slices of the mapping; text is only
+ * copied when printed. Comments may hold any bytes and are printed
+ * verbatim, so a file with a non-ASCII byte is decoded as UTF-8 instead,
+ * like CharStreams.fromFileName does.
+ */
+public class MappedCharStream implements CharStream {
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final String name;
+    private int p = 0;
+
+    MappedCharStream(ByteBuffer buffer, String name) {
+        this.buffer = buffer;
+        this.size = buffer.limit();
+        this.name = name;
+    }
+
+    /** The mapped file, or the decoded one (CharStreams) if it is not all ASCII. */
+    static CharStream fromFileName(String fileName) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(fileName + ": too large to map (" + length + " bytes)");
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) < 0) return CharStreams.fromFileName(fileName);
+        }
+        return new MappedCharStream(buffer, fileName);
+    }
+
+    /** Zero-copy text of chars [start, end). */
+    CharSequence view(int start, int end) {
+        return new Slice(buffer, start, end);
+    }
+
+    @Override
+    public void consume() {
+        if (p >= size) throw new IllegalStateException("cannot consume EOF");
+        p++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) return 0; // undefined
+        int index = (i > 0) ? p + i - 1 : p + i;
+        if (index < 0 || index >= size) return IntStream.EOF;
+        return buffer.get(index) & 0xff;
+    }
+
+    @Override
+    public int mark() {
+        return -1; // the whole file is always available
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return p;
+    }
+
+    @Override
+    public void seek(int index) {
+        p = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return (name != null) ? name : IntStream.UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = interval.a;
+        int stop = Math.min(interval.b, size - 1);
+        if (start >= size || stop < start) return "";
+        return view(start, stop + 1).toString();
+    }
+
+    @Override
+    public String toString() {
+        return view(0, size).toString();
+    }
+
+    /** Chars [start, end) of the mapped file, read in place. */
+    static final class Slice implements CharSequence {
+        private final ByteBuffer buffer;
+        private final int start, end;
+
+        Slice(ByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(start + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new Slice(buffer, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[end - start];
+            buffer.get(start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
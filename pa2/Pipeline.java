@@ -0,0 +1,197 @@
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Pipeline: parse -> CFG -> liveness for one source at a time.
+ * The lexer and parser are created once and re-pointed at each input;
+ * their ATN and DFA cache are shared, so later inputs run on a warm parser.
+ * Not thread-safe: use one Pipeline per thread (see forThread()).
+ */
+public class Pipeline {
+
+    private static final ThreadLocal<Pipeline> PER_THREAD = ThreadLocal.withInitial(Pipeline::new);
+
+    private final simpleCLexer lexer = new simpleCLexer(null);
+    private final simpleCParser parser = new simpleCParser(null);
+
+    /** CFG and liveness text of one input, as CFGBuilder / DFAAnalyzer print them. */
+    static class Result {
+        final String cfg;
+        final String liveness;
+
+        Result(String cfg, String liveness) {
+            this.cfg = cfg;
+            this.liveness = liveness;
+        }
+    }
+
+    static Pipeline forThread() {
+        return PER_THREAD.get();
+    }
+
+    ParseTree parse(CharStream input) {
+        return parse(input, null);
+    }
+
+    private ParseTree parse(CharStream input, Stats stats) {
+        lexer.setInputStream(input);
+        parser.setTokenStream(new CommonTokenStream(lexer));
+        return TwoStageParser.parse(parser, stats);
+    }
+
+    Result analyze(CharStream input) {
+        return analyze(input, null);
+    }
+
+    /** Also records parses and per-function phases in `stats` (may be null). */
+    Result analyze(CharStream input, Stats stats) {
+        ParseTree tree = parse(input, stats);
+
+        CFAVisitor cfaVisitor = new CFAVisitor(1);
+        cfaVisitor.stats = stats;
+        cfaVisitor.visit(tree);
+        StringWriter cfg = new StringWriter();
+        PrintWriter cfgOut = new PrintWriter(cfg);
+        cfaVisitor.printCFG(cfgOut);
+        cfgOut.flush();
+
+        for (Function f : cfaVisitor.getFunctions().values()) f.freeze();
+        DFAAnalyzer dfa = new DFAAnalyzer(cfaVisitor.getFunctions());
+        dfa.stats = stats;
+        dfa.run();
+        StringWriter liveness = new StringWriter();
+        PrintWriter livenessOut = new PrintWriter(liveness);
+        dfa.printResults(livenessOut);
+        livenessOut.flush();
+
+        return new Result(cfg.toString(), liveness.toString());
+    }
+
+    /**
+     * Incremental analyze(): the source is split into top-level items without
+     * parsing (TopLevelScanner), and only items whose text is not in the
+     * cache are parsed, built and solved, each on its own; the output is
+     * assembled from the cached pieces. A one-function edit costs that
+     * function plus a hash of the rest. Anything the split or an item parse
+     * does not handle cleanly (syntax errors, duplicate function names) goes
+     * through analyze(CharStream), so the output is always the same.
+     */
+    Result analyze(String source, FunctionCache cache) {
+        return analyze(source, cache, null);
+    }
+
+    /** Also records the parses and functions of cache misses in `stats` (may be null). */
+    Result analyze(String source, FunctionCache cache, Stats stats) {
+        List<TopLevelScanner.Item> items = TopLevelScanner.scan(source);
+        if (items == null) return analyze(CharStreams.fromString(source), stats);
+        int functions = 0;
+        while (functions < items.size() && !items.get(functions).function) functions++;
+
+        StringBuilder cfg = new StringBuilder();
+        StringBuilder liveness = new StringBuilder();
+        int declStart = functions > 0 ? items.get(0).start : 0;
+        int declEnd = functions > 0 ? items.get(functions - 1).end : 0;
+        FunctionCache.Entry header = cached(cache, FunctionCache.GLOBALS, source, declStart, declEnd, stats);
+        if (header == null) return analyze(CharStreams.fromString(source), stats);
+        cfg.append(header.cfg);
+
+        Set<String> names = new HashSet<>();
+        for (TopLevelScanner.Item item : items.subList(functions, items.size())) {
+            FunctionCache.Entry e = cached(cache, FunctionCache.FUNCTION, source, item.start, item.end, stats);
+            if (e == null || !names.add(e.name)) return analyze(CharStreams.fromString(source), stats);
+            cfg.append(e.cfg);
+            liveness.append(e.liveness);
+        }
+        return new Result(cfg.toString(), liveness.toString());
+    }
+
+    // cache entry of one item, built on a miss; null if the item does not parse cleanly
+    private FunctionCache.Entry cached(FunctionCache cache, byte kind, String source, int start, int end, Stats stats) {
+        FunctionCache.Key key = FunctionCache.key(kind, source, start, end);
+        FunctionCache.Entry e = cache.get(key);
+        if (e != null) return e;
+        String text = source.substring(start, end);
+        e = (kind == FunctionCache.GLOBALS) ? buildGlobals(text, stats) : buildFunction(text, stats);
+        if (e != null) cache.put(key, e);
+        return e;
+    }
+
+    private FunctionCache.Entry buildGlobals(String text, Stats stats) {
+        CFAVisitor cfaVisitor = new CFAVisitor(1);
+        if (!text.isEmpty()) {
+            ParserRuleContext declList = parseItem(text, false, stats);
+            if (declList == null) return null;
+            cfaVisitor.visit(declList);
+        }
+        StringWriter cfg = new StringWriter();
+        PrintWriter cfgOut = new PrintWriter(cfg);
+        cfaVisitor.printHeader(cfgOut);
+        cfgOut.flush();
+        return new FunctionCache.Entry(null, cfg.toString(), "");
+    }
+
+    private FunctionCache.Entry buildFunction(String text, Stats stats) {
+        simpleCParser.FunctionContext function = (simpleCParser.FunctionContext) parseItem(text, true, stats);
+        if (function == null) return null;
+
+        CFAVisitor cfaVisitor = new CFAVisitor(1);
+        cfaVisitor.stats = stats;
+        cfaVisitor.visit(function);
+        StringWriter cfg = new StringWriter();
+        PrintWriter cfgOut = new PrintWriter(cfg);
+        cfaVisitor.printFunctions(cfgOut);
+        cfgOut.flush();
+
+        for (Function f : cfaVisitor.getFunctions().values()) f.freeze();
+        DFAAnalyzer dfa = new DFAAnalyzer(cfaVisitor.getFunctions());
+        dfa.stats = stats;
+        dfa.run();
+        StringWriter liveness = new StringWriter();
+        PrintWriter livenessOut = new PrintWriter(liveness);
+        dfa.printResults(livenessOut);
+        livenessOut.flush();
+
+        return new FunctionCache.Entry(function.ID().getText(), cfg.toString(), liveness.toString());
+    }
+
+    // one function or the declaration block on its own: SLL then LL, null on any syntax error
+    private ParserRuleContext parseItem(String text, boolean function, Stats stats) {
+        lexer.setInputStream(CharStreams.fromString(text));
+        parser.setTokenStream(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+        try {
+            for (PredictionMode mode : new PredictionMode[]{PredictionMode.SLL, PredictionMode.LL}) {
+                parser.getInterpreter().setPredictionMode(mode);
+                try {
+                    ParserRuleContext ctx = function ? parser.function() : parser.declList();
+                    if (stats != null) stats.parsed(mode == PredictionMode.LL);
+                    return parser.getCurrentToken().getType() == Token.EOF ? ctx : null;
+                } catch (ParseCancellationException e) {
+                    parser.reset();
+                }
+            }
+            if (stats != null) stats.parsed(true);
+            return null;
+        } finally {
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        }
+    }
+}
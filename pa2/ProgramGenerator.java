@@ -0,0 +1,147 @@
+import java.util.Random;
+
+/**
+ * ProgramGenerator: synthetic simpleC source for benchmarks.
+ * Knobs: function count, statements per function, nesting depth,
+ * loop density (share of compound statements that are loops), variable count.
+ */
+public class ProgramGenerator {
+
+    int functions = 16;
+    int statements = 200;
+    int depth = 3;
+    double loopDensity = 0.3;
+    int vars = 16;
+    long seed = 42;
+
+    private Random rnd;
+    private StringBuilder sb;
+
+    ProgramGenerator functions(int n) { this.functions = n; return this; }
+    ProgramGenerator statements(int n) { this.statements = n; return this; }
+    ProgramGenerator depth(int n) { this.depth = n; return this; }
+    ProgramGenerator loopDensity(double d) { this.loopDensity = d; return this; }
+    ProgramGenerator vars(int n) { this.vars = n; return this; }
+    ProgramGenerator seed(long s) { this.seed = s; return this; }
+
+    String generate() {
+        rnd = new Random(seed);
+        sb = new StringBuilder();
+        sb.append("int g0, g1 = 1;\n\n");
+        for (int f = 0; f < functions; f++) {
+            sb.append("int fn").append(letters(f)).append("(int p, int q) {\n");
+            sb.append("    int ");
+            for (int v = 0; v < vars; v++) sb.append(v == 0 ? "" : ", ").append("v").append(v);
+            sb.append(";\n");
+            block(statements, depth, 1);
+            sb.append("    return ").append(expr()).append(";\n}\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * One function with `levels` exactly nested if/else statements.
+     * Every level leaves an empty join block, chained to the next one out.
+     */
+    static String nestedIfs(int levels) {
+        StringBuilder sb = new StringBuilder("int nested(int x) {\n    int y;\n    y = 0;\n");
+        for (int i = 0; i < levels; i++) sb.append("if (x > ").append(i).append(") {\n");
+        sb.append("y = y + 1;\n");
+        for (int i = 0; i < levels; i++) sb.append("} else {\ny = y - ").append(i).append(";\n}\n");
+        sb.append("    return y;\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * One function with `levels` exactly nested while loops, each updating
+     * variables that the loops around it read, so liveness must cross every
+     * back edge of the nest.
+     */
+    static String nestedLoops(int levels) {
+        StringBuilder sb = new StringBuilder("int nested(int n) {\n    int i, x, y;\n    i = 0;\n    x = 0;\n    y = 0;\n");
+        for (int i = 0; i < levels; i++) sb.append("while (i < n + ").append(i).append(") {\ny = y + x;\n");
+        sb.append("x = i;\ny = y - x;\n");
+        for (int i = 0; i < levels; i++) sb.append("}\ni = i + 1;\n");
+        sb.append("    return y;\n}\n");
+        return sb.toString();
+    }
+
+    // emits about `budget` statements, compound statements take a share of it
+    private void block(int budget, int levels, int indent) {
+        while (budget > 0) {
+            double r = rnd.nextDouble();
+            if (levels > 0 && budget > 2 && r < 0.4) {
+                int inner = 1 + rnd.nextInt(Math.max(1, budget / 2));
+                budget -= inner + 1;
+                if (rnd.nextDouble() < loopDensity) loop(inner, levels - 1, indent);
+                else branch(inner, levels - 1, indent);
+            } else if (r < 0.5) {
+                pad(indent).append("print(").append(var()).append(", ").append(expr()).append(");\n");
+                budget--;
+            } else {
+                pad(indent).append(var()).append(" = ").append(expr()).append(";\n");
+                budget--;
+            }
+        }
+    }
+
+    private void branch(int budget, int levels, int indent) {
+        pad(indent).append("if (").append(expr()).append(") {\n");
+        if (rnd.nextBoolean()) {
+            block(budget, levels, indent + 1);
+            pad(indent).append("}\n");
+        } else {
+            block((budget + 1) / 2, levels, indent + 1);
+            pad(indent).append("} else {\n");
+            block(budget / 2, levels, indent + 1);
+            pad(indent).append("}\n");
+        }
+    }
+
+    private void loop(int budget, int levels, int indent) {
+        if (rnd.nextBoolean()) {
+            pad(indent).append("while (").append(var()).append(" < ").append(expr()).append(") {\n");
+        } else {
+            String v = var();
+            pad(indent).append("for (").append(v).append(" = 0; ").append(v).append(" < ").append(expr())
+                    .append("; ").append(v).append(" = ").append(v).append(" + 1) {\n");
+        }
+        block(budget, levels, indent + 1);
+        pad(indent).append("}\n");
+    }
+
+    private String expr() {
+        int terms = 1 + rnd.nextInt(3);
+        StringBuilder e = new StringBuilder();
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) e.append(rnd.nextBoolean() ? " + " : " * ");
+            int r = rnd.nextInt(10);
+            if (r < 6) e.append(var());
+            else if (r < 9) e.append(rnd.nextInt(100));
+            else e.append("fn").append(letters(rnd.nextInt(functions))).append("(").append(var()).append(", p)");
+        }
+        return e.toString();
+    }
+
+    private String var() {
+        int r = rnd.nextInt(vars + 2);
+        if (r == vars) return "p";
+        if (r == vars + 1) return "q";
+        return "v" + r;
+    }
+
+    private StringBuilder pad(int indent) {
+        for (int i = 0; i < indent; i++) sb.append("    ");
+        return sb;
+    }
+
+    // function names without digits (block ids are sorted by their digits)
+    private static String letters(int n) {
+        StringBuilder s = new StringBuilder();
+        do {
+            s.append((char) ('a' + n % 26));
+            n /= 26;
+        } while (n > 0);
+        return s.toString();
+    }
+}
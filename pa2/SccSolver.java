@@ -0,0 +1,120 @@
+import java.util.Arrays;
+
+/**
+ * SccSolver: liveness one strongly connected component at a time. Tarjan's
+ * algorithm (explicit stacks) finishes a component only after every
+ * component reachable from it, i.e. sinks first, which is the order a
+ * backward problem wants: when a component is solved, the IN sets of all
+ * its successors outside it are final. So each component is solved as soon
+ * as Tarjan pops it; a block outside any loop is visited exactly once, and
+ * a loop iterates on a worklist confined to its own blocks.
+ */
+final class SccSolver {
+
+    private SccSolver() {
+    }
+
+    static void solve(CompactCFG cfg, Liveness lv, Stats.FunctionStats fs) {
+        int n = cfg.size;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] component = new int[n];     // component number of a popped block
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];         // Tarjan's stack; a popped component stays at [sp, top)
+        int[] callBlock = new int[n];     // DFS path
+        int[] callEdge = new int[n];      // next successor edge of the block at the same depth
+        Arrays.fill(index, -1);
+        Arrays.fill(component, -1);
+
+        Worklist worklist = new Worklist(cfg.postorder.length);
+        long[] newIn = new long[cfg.words];
+        long visits = 0, inChanges = 0;
+        int peak = 0, components = 0, next = 0, sp = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (!solvable(cfg, root) || index[root] >= 0) continue;
+            int depth = 0;
+            callBlock[0] = root;
+            callEdge[0] = cfg.succStart[root];
+            index[root] = low[root] = next++;
+            stack[sp++] = root;
+            onStack[root] = true;
+
+            while (depth >= 0) {
+                int b = callBlock[depth];
+                if (callEdge[depth] < cfg.succStart[b + 1]) {
+                    int s = cfg.succ[callEdge[depth]++];
+                    if (!solvable(cfg, s)) continue;
+                    if (index[s] < 0) {
+                        index[s] = low[s] = next++;
+                        stack[sp++] = s;
+                        onStack[s] = true;
+                        depth++;
+                        callBlock[depth] = s;
+                        callEdge[depth] = cfg.succStart[s];
+                    } else if (onStack[s]) {
+                        low[b] = Math.min(low[b], index[s]);
+                    }
+                    continue;
+                }
+
+                depth--;
+                if (depth >= 0) low[callBlock[depth]] = Math.min(low[callBlock[depth]], low[b]);
+                if (low[b] != index[b]) continue;
+
+                // b roots a component: pop it and solve it now
+                int top = sp;
+                int c = components++;
+                do {
+                    int m = stack[--sp];
+                    onStack[m] = false;
+                    component[m] = c;
+                } while (stack[sp] != b);
+
+                if (top - sp == 1 && !hasSelfLoop(cfg, b)) {
+                    // outside any loop: its successors are final, one visit is enough
+                    visits++;
+                    if (DFAAnalyzer.transfer(cfg, lv, b, newIn)) inChanges++;
+                    continue;
+                }
+
+                // loop: worklist over this component only, in postorder
+                long before = visits;
+                for (int i = sp; i < top; i++) worklist.add(cfg.postorderNumber[stack[i]]);
+                peak = Math.max(peak, worklist.size());
+                while (!worklist.isEmpty()) {
+                    int x = cfg.postorder[worklist.poll()];
+                    visits++;
+                    if (!DFAAnalyzer.transfer(cfg, lv, x, newIn)) continue;
+                    inChanges++;
+                    for (int e = cfg.predStart[x]; e < cfg.predStart[x + 1]; e++) {
+                        int p = cfg.pred[e];
+                        // predecessors outside the loop come later in Tarjan order
+                        if (component[p] == c) worklist.add(cfg.postorderNumber[p]);
+                    }
+                    peak = Math.max(peak, worklist.size());
+                }
+                if (fs != null) fs.addLoopScc(top - sp, visits - before);
+            }
+        }
+
+        if (fs != null) {
+            fs.worklistPops = visits;
+            fs.inChanges = inChanges;
+            fs.peakWorklist = peak;
+            fs.sccs = components;
+        }
+    }
+
+    // the blocks the solver computes: reachable, not entry or exit
+    private static boolean solvable(CompactCFG cfg, int b) {
+        return cfg.isBody(b) && cfg.postorderNumber[b] >= 0;
+    }
+
+    private static boolean hasSelfLoop(CompactCFG cfg, int b) {
+        for (int e = cfg.succStart[b]; e < cfg.succStart[b + 1]; e++) {
+            if (cfg.succ[e] == b) return true;
+        }
+        return false;
+    }
+}
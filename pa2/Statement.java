@@ -0,0 +1,105 @@
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Statement: one CFG statement (or block-ending branch) as a source range.
+ * Holds the char offsets of its first and last token, a kind tag and the
+ * called functions; the text is rendered from the function's source only
+ * when the CFG is printed.
+ */
+public final class Statement {
+    enum Kind {
+        PLAIN,          // declaration: text as written
+        ASSIGN,         // x = e;            + " # call in expr: f -> f_entry" per call
+        CALL,           // f(...);           + " # call: f -> f_entry"
+        RETURN,         // return e;         + " # call in return: f -> f_entry" per call
+        FOR_ASSIGN,     // for init/update:  text + ";"
+        IF, WHILE, FOR  // branches:         "if (" + condition + ")"
+    }
+
+    private static final int[] NO_CALLEES = new int[0];
+
+    final Kind kind;
+    final int start, stop; // char offsets, stop inclusive
+    final int[] callees;   // symbol ids
+    private final String text; // only if the parser could not give a range (error recovery)
+
+    private Statement(Kind kind, int start, int stop, int[] callees, String text) {
+        this.kind = kind;
+        this.start = start;
+        this.stop = stop;
+        this.callees = callees;
+        this.text = text;
+    }
+
+    static Statement of(Kind kind, ParserRuleContext ctx) {
+        return of(kind, ctx, NO_CALLEES);
+    }
+
+    static Statement of(Kind kind, ParserRuleContext ctx, int[] callees) {
+        if (ctx.start == null || ctx.stop == null ||
+                ctx.start.getStartIndex() < 0 || ctx.stop.getStopIndex() < 0) {
+            return new Statement(kind, 0, -1, callees, ctx.getText());
+        }
+        return new Statement(kind, ctx.start.getStartIndex(), ctx.stop.getStopIndex(), callees, null);
+    }
+
+    /** Rendered text; a multi-line statement continues at `indent` after each newline. */
+    void appendTo(StringBuilder sb, CharStream source, SymbolTable symbols, String indent) {
+        switch (kind) {
+            case IF:
+                sb.append("if (");
+                break;
+            case WHILE:
+                sb.append("while (");
+                break;
+            case FOR:
+                sb.append("for (");
+                break;
+            default:
+                break;
+        }
+        appendSource(sb, source, indent);
+        switch (kind) {
+            case ASSIGN:
+                appendCalls(sb, " # call in expr: ", symbols);
+                break;
+            case CALL:
+                appendCalls(sb, " # call: ", symbols);
+                break;
+            case RETURN:
+                appendCalls(sb, " # call in return: ", symbols);
+                break;
+            case FOR_ASSIGN:
+                sb.append(";");
+                break;
+            case IF:
+            case WHILE:
+            case FOR:
+                sb.append(")");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void appendSource(StringBuilder sb, CharStream source, String indent) {
+        CharSequence chars;
+        if (text != null) chars = text;
+        else if (source instanceof MappedCharStream) chars = ((MappedCharStream) source).view(start, stop + 1);
+        else chars = source.getText(Interval.of(start, stop));
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            sb.append(c);
+            if (c == '\n') sb.append(indent);
+        }
+    }
+
+    private void appendCalls(StringBuilder sb, String label, SymbolTable symbols) {
+        for (int id : callees) {
+            String callee = symbols.name(id);
+            sb.append(label).append(callee).append(" -> ").append(callee).append("_entry");
+        }
+    }
+}
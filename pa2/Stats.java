@@ -0,0 +1,203 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Stats: --stats instrumentation of one run. Wall time and allocated bytes
+ * per phase of the driver and per phase of every function (statement walk,
+ * the four post-processing passes, compaction, liveness), the parses of
+ * TwoStageParser and how many fell back from SLL to LL (with --cache: the
+ * items parsed on cache misses, and only their functions), block counts
+ * around mergeEmptyBlocks/removeDeadBlocks and the worklist counters of the
+ * liveness solver (with the SCC solver, also the visits of every loop
+ * component; with the loop-forest solver, the loops and the passes over
+ * them), written as one JSON object.
+ *
+ * Allocation is per thread (ThreadMXBean): a driver phase counts the thread
+ * that ran it, so with --threads N the work done on the pool only shows up
+ * in the per-function entries (and their totals under "functionPhases").
+ */
+final class Stats {
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    static final class Phase {
+        long wallNanos, allocatedBytes;
+        int count;
+
+        void add(Phase p) {
+            wallNanos += p.wallNanos;
+            allocatedBytes += p.allocatedBytes;
+            count += p.count;
+        }
+    }
+
+    /** Start of one measured section, see lap(). */
+    static final class Span {
+        final long wall = System.nanoTime();
+        final long alloc = allocatedBytes();
+    }
+
+    static final class FunctionStats {
+        final String name;
+        final Map<String, Phase> phases = new LinkedHashMap<>(); // written by one thread at a time
+        int blocksBeforeMerge = -1, blocksAfterMerge = -1, blocksAfterRemoveDead = -1;
+        long worklistPops, inChanges;
+        int peakWorklist;
+        int sccs = -1;                                    // SCC solver only
+        final List<long[]> loopSccs = new ArrayList<>();  // {blocks, visits} per cyclic SCC
+        int loops = -1, loopPasses;                       // loop-forest solver only
+
+        FunctionStats(String name) {
+            this.name = name;
+        }
+
+        void addLoopScc(int blocks, long visits) {
+            loopSccs.add(new long[]{blocks, visits});
+        }
+
+        /** Adds the time and allocation since `since` to the phase, returns the start of the next one. */
+        Span lap(String phase, Span since) {
+            return Stats.lap(phases, phase, since);
+        }
+    }
+
+    final String input;
+    final int threads;
+    private long parses, llFallbacks; // TwoStageParser runs of this run, and LL second stages
+    private final Map<String, Phase> phases = new LinkedHashMap<>();
+    // by instance: functions that share a name (redefinitions) keep separate records
+    private final Map<Function, FunctionStats> functions = new LinkedHashMap<>();
+
+    Stats(String input, int threads) {
+        this.input = input;
+        this.threads = threads;
+    }
+
+    synchronized Span lap(String phase, Span since) {
+        return lap(phases, phase, since);
+    }
+
+    // the next span starts after the bookkeeping, so it is not charged to either phase
+    private static Span lap(Map<String, Phase> phases, String phase, Span since) {
+        Span now = new Span();
+        Phase p = phases.computeIfAbsent(phase, k -> new Phase());
+        p.wallNanos += now.wall - since.wall;
+        p.allocatedBytes += now.alloc - since.alloc;
+        p.count++;
+        return new Span();
+    }
+
+    synchronized void parsed(boolean llFallback) {
+        parses++;
+        if (llFallback) llFallbacks++;
+    }
+
+    synchronized FunctionStats function(Function f) {
+        return functions.computeIfAbsent(f, k -> new FunctionStats(k.name));
+    }
+
+    static long allocatedBytes() {
+        return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported()) return null;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    // === JSON ===
+
+    void writeJson(String filename) throws IOException {
+        try (Writer out = new FileWriter(filename)) {
+            writeJson(out);
+        }
+    }
+
+    synchronized void writeJson(Writer out) throws IOException {
+        Map<String, Phase> totals = new LinkedHashMap<>();
+        for (FunctionStats f : functions.values()) {
+            for (Map.Entry<String, Phase> e : f.phases.entrySet()) {
+                totals.computeIfAbsent(e.getKey(), k -> new Phase()).add(e.getValue());
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"input\": ").append(quote(input)).append(",\n");
+        sb.append("  \"threads\": ").append(threads).append(",\n");
+        sb.append("  \"allocationTracked\": ").append(THREADS != null).append(",\n");
+        sb.append("  \"parser\": {\"parses\": ").append(parses)
+                .append(", \"llFallbacks\": ").append(llFallbacks).append("},\n");
+        sb.append("  \"phases\": ");
+        appendPhases(sb, phases, "  ");
+        sb.append(",\n  \"functionPhases\": ");
+        appendPhases(sb, totals, "  ");
+        sb.append(",\n  \"functions\": [");
+        String sep = "\n";
+        for (FunctionStats f : functions.values()) {
+            sb.append(sep).append("    {\n");
+            sb.append("      \"name\": ").append(quote(f.name)).append(",\n");
+            sb.append("      \"phases\": ");
+            appendPhases(sb, f.phases, "      ");
+            sb.append(",\n      \"blocks\": {\"beforeMerge\": ").append(f.blocksBeforeMerge)
+                    .append(", \"afterMerge\": ").append(f.blocksAfterMerge)
+                    .append(", \"afterRemoveDead\": ").append(f.blocksAfterRemoveDead).append("},\n");
+            sb.append("      \"liveness\": {\"worklistPops\": ").append(f.worklistPops)
+                    .append(", \"inChanges\": ").append(f.inChanges)
+                    .append(", \"peakWorklist\": ").append(f.peakWorklist);
+            if (f.sccs >= 0) {
+                sb.append(", \"sccs\": ").append(f.sccs).append(", \"loopSccs\": [");
+                for (int i = 0; i < f.loopSccs.size(); i++) {
+                    long[] l = f.loopSccs.get(i);
+                    sb.append(i == 0 ? "" : ", ").append("{\"blocks\": ").append(l[0])
+                            .append(", \"visits\": ").append(l[1]).append("}");
+                }
+                sb.append("]");
+            }
+            if (f.loops >= 0) {
+                sb.append(", \"loops\": ").append(f.loops).append(", \"loopPasses\": ").append(f.loopPasses);
+            }
+            sb.append("}\n");
+            sb.append("    }");
+            sep = ",\n";
+        }
+        sb.append(functions.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        out.write(sb.toString());
+    }
+
+    private static void appendPhases(StringBuilder sb, Map<String, Phase> phases, String indent) {
+        if (phases.isEmpty()) {
+            sb.append("{}");
+            return;
+        }
+        sb.append("{");
+        String sep = "\n";
+        for (Map.Entry<String, Phase> e : phases.entrySet()) {
+            Phase p = e.getValue();
+            sb.append(sep).append(indent).append("  ").append(quote(e.getKey()))
+                    .append(": {\"wallNanos\": ").append(p.wallNanos)
+                    .append(", \"allocatedBytes\": ").append(p.allocatedBytes)
+                    .append(", \"count\": ").append(p.count).append("}");
+            sep = ",\n";
+        }
+        sb.append("\n").append(indent).append("}");
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') sb.append('\\').append(c);
+            else if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+            else sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+}
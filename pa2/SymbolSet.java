@@ -0,0 +1,44 @@
+import java.util.Arrays;
+
+/**
+ * SymbolSet: set of symbol ids kept as a sorted int array.
+ * Used for the (small) use/def sets of a block.
+ */
+public class SymbolSet {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids = EMPTY;
+    private int size = 0;
+
+    boolean add(int id) {
+        int i = Arrays.binarySearch(ids, 0, size, id);
+        if (i >= 0) return false;
+        i = -i - 1;
+        if (size == ids.length) ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+        System.arraycopy(ids, i, ids, i + 1, size - i);
+        ids[i] = id;
+        size++;
+        return true;
+    }
+
+    void addAll(int[] buf, int n) {
+        for (int i = 0; i < n; i++) add(buf[i]);
+    }
+
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // i-th smallest id
+    int get(int i) {
+        return ids[i];
+    }
+}
@@ -0,0 +1,108 @@
+import org.antlr.v4.runtime.Token;
+
+import java.util.Arrays;
+
+/**
+ * SymbolTable: interns the identifiers of one compilation unit.
+ * Every name gets a dense int id once; the pipeline works on ids and
+ * only asks for the name when printing. Names are looked up by their
+ * chars, so an identifier can be interned straight from the source text
+ * and its String is only made the first time it is seen. Safe for
+ * concurrent interning; lookups (by id, or of a name seen before) take
+ * no lock.
+ */
+public class SymbolTable {
+    private final Object lock = new Object();
+
+    // id -> name; replaced by a larger copy on growth, republished after every intern
+    private volatile String[] names = new String[64];
+    private volatile int size;
+    // open addressing by String.hashCode: id + 1, 0 if free; at most half full, replaced on growth
+    private volatile int[] slots = new int[128];
+
+    int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /** Id of an identifier token whose source is `text` from char `offset` on. */
+    int intern(Token t, CharSequence text, int offset) {
+        int start = t.getStartIndex() - offset;
+        int end = t.getStopIndex() + 1 - offset;
+        if (text == null || start < 0 || end <= start || end > text.length()) {
+            return intern(t.getText()); // made up by error recovery, or outside `text`
+        }
+        return intern(text, start, end);
+    }
+
+    /** Id of the name in chars [start, end) of `text`. */
+    int intern(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        // a stale view of slots or names only misses, and the locked lookup settles it
+        int id = find(slots, names, hash, text, start, end);
+        if (id >= 0) return id;
+        synchronized (lock) {
+            int[] s = slots;
+            String[] n = names;
+            id = find(s, n, hash, text, start, end);
+            if (id >= 0) return id;
+            id = size;
+            if (id == n.length) n = Arrays.copyOf(n, id * 2);
+            n[id] = text.subSequence(start, end).toString();
+            names = n;    // publishes the slot to readers of `names`
+            size = id + 1;
+            if (2 * size > s.length) {
+                s = new int[s.length * 2];
+                for (int i = 0; i < size; i++) insert(s, n[i].hashCode(), i);
+                slots = s;
+            } else {
+                insert(s, hash, id);
+            }
+            return id;
+        }
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int find(int[] slots, String[] names, int hash, CharSequence text, int start, int end) {
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            String name = (id < names.length) ? names[id] : null;
+            if (name != null && name.hashCode() == hash && matches(name, text, start, end)) return id;
+        }
+        return -1;
+    }
+
+    private static void insert(int[] slots, int hash, int id) {
+        int mask = slots.length - 1;
+        int i = spread(hash) & mask;
+        while (slots[i] != 0) i = (i + 1) & mask;
+        slots[i] = id + 1;
+    }
+
+    private static boolean matches(String name, CharSequence text, int start, int end) {
+        if (name.length() != end - start) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    // String.hashCode of the chars, so a String and a range of the source hash alike
+    private static int hash(CharSequence text, int start, int end) {
+        if (start == 0 && end == text.length() && text instanceof String) return text.hashCode();
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + text.charAt(i);
+        return h;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TopLevelScanner: splits a simpleC source into its top-level items (global
+ * declarations, then function definitions) by brace depth, without lexing
+ * or parsing. Whitespace and comments are skipped the way the lexer skips
+ * them; a declaration runs from its first character to its ';' and a
+ * function to the '}' that closes its body. Returns null for anything it
+ * cannot split cleanly (unbalanced braces, unterminated comment or item, a
+ * declaration after a function): callers then parse the whole source.
+ */
+final class TopLevelScanner {
+
+    static final class Item {
+        final boolean function;
+        final int start, end; // char offsets, end exclusive
+
+        Item(boolean function, int start, int end) {
+            this.function = function;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    static List<Item> scan(CharSequence s) {
+        List<Item> items = new ArrayList<>();
+        int n = s.length();
+        int start = -1; // start of the current item, -1 between items
+        int depth = 0;
+        boolean seenFunction = false;
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+            if (c == '/' && i + 1 < n && s.charAt(i + 1) == '*') {
+                int close = indexOf(s, "*/", i + 2);
+                if (close < 0) return null;
+                i = close + 2;
+                continue;
+            }
+            if (c == '/' && i + 1 < n && s.charAt(i + 1) == '/') {
+                while (i < n && s.charAt(i) != '\n' && s.charAt(i) != '\r') i++;
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                i++;
+                continue;
+            }
+
+            if (start < 0) start = i;
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (--depth < 0) return null;
+                if (depth == 0) {
+                    items.add(new Item(true, start, i + 1));
+                    seenFunction = true;
+                    start = -1;
+                }
+            } else if (c == ';' && depth == 0) {
+                if (seenFunction) return null;
+                items.add(new Item(false, start, i + 1));
+                start = -1;
+            }
+            i++;
+        }
+        return start < 0 ? items : null;
+    }
+
+    private static int indexOf(CharSequence s, String needle, int from) {
+        for (int i = from; i + needle.length() <= s.length(); i++) {
+            boolean match = true;
+            for (int k = 0; k < needle.length() && match; k++) match = s.charAt(i + k) == needle.charAt(k);
+            if (match) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-stage parse of a program: SLL prediction that bails out on the first
+ * error, then, only if that failed, a full LL parse with normal error
+ * reporting. SLL accepts every valid program unless a decision really needs
+ * full context, so the second stage runs for syntax errors and those rare cases.
+ */
+public class TwoStageParser {
+
+    // process-wide: programs parsed, and how many of them needed the LL stage
+    // (per run, see Stats.parsed)
+    static final AtomicLong parses = new AtomicLong();
+    static final AtomicLong llFallbacks = new AtomicLong();
+
+    static ParseTree parse(simpleCParser parser) {
+        return parse(parser, null);
+    }
+
+    /** Also counts the parse, and whether it fell back to LL, in `stats` (may be null). */
+    static ParseTree parse(simpleCParser parser, Stats stats) {
+        parses.incrementAndGet();
+        boolean fellBack = false;
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.setErrorHandler(new BailErrorStrategy());
+        parser.removeErrorListeners();
+        try {
+            return parser.program();
+        } catch (ParseCancellationException e) {
+            llFallbacks.incrementAndGet();
+            fellBack = true;
+            parser.reset(); // rewinds the token stream
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+            return parser.program();
+        } finally {
+            if (stats != null) stats.parsed(fellBack);
+            // leave the parser in its default (LL, reporting) state
+            parser.removeErrorListeners();
+            parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+            parser.setErrorHandler(new DefaultErrorStrategy());
+            parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+        }
+    }
+}
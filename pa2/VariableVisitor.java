@@ -1,42 +1,80 @@
-import java.util.Set;
-import java.util.TreeSet;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.Arrays;
 
 /**
- * ANTLR Visitor class for collecting 'use' vars
+ * ANTLR Visitor class for collecting 'use' vars (and called functions)
+ * of an expression in a single walk. Names are interned and their ids
+ * appended to reusable buffers, valid until the next collect().
  */
-public class VariableVisitor extends simpleCBaseVisitor<Set<String>> {
+public class VariableVisitor extends simpleCBaseVisitor<Void> {
 
-    @Override
-    protected Set<String> defaultResult() {
-        return new TreeSet<>();
+    private static final int[] NO_CALLEES = new int[0];
+
+    private final SymbolTable symbols;
+    private int[] uses = new int[16];
+    private int useCount = 0;
+    private int[] callees = new int[4];
+    private int calleeCount = 0;
+    // source the identifiers are interned from, see source()
+    private CharSequence text;
+    private int offset;
+
+    public VariableVisitor(SymbolTable symbols) {
+        this.symbols = symbols;
     }
 
-    @Override
-    protected Set<String> aggregateResult(Set<String> aggregate, Set<String> nextResult) {
-        aggregate.addAll(nextResult);
-        return aggregate;
+    void collect(ParseTree node) {
+        useCount = 0;
+        calleeCount = 0;
+        if (node == null) return;
+        visit(node);
+    }
+
+    // identifiers are read from `text`, the source from char `offset` on (null: token text)
+    void source(CharSequence text, int offset) {
+        this.text = text;
+        this.offset = offset;
+    }
+
+    // 'use' vars of the last collect()
+    void addUsesTo(SymbolSet set) {
+        set.addAll(uses, useCount);
+    }
+
+    // called functions of the last collect(), outermost call first
+    int[] callees() {
+        return (calleeCount == 0) ? NO_CALLEES : Arrays.copyOf(callees, calleeCount);
+    }
+
+    private void addUse(int id) {
+        if (useCount == uses.length) uses = Arrays.copyOf(uses, useCount * 2);
+        uses[useCount++] = id;
+    }
+
+    private void addCallee(int id) {
+        if (calleeCount == callees.length) callees = Arrays.copyOf(callees, calleeCount * 2);
+        callees[calleeCount++] = id;
     }
 
     // if atom node = var(id), add to 'use' set
     @Override
-    public Set<String> visitAtom(simpleCParser.AtomContext ctx) {
-        Set<String> used = defaultResult();
+    public Void visitAtom(simpleCParser.AtomContext ctx) {
         if (ctx.ID() != null) {
-            used.add(ctx.ID().getText());
+            addUse(symbols.intern(ctx.ID().getSymbol(), text, offset));
         }
 
         // visit child node
-        used.addAll(visitChildren(ctx));
-        return used;
+        return visitChildren(ctx);
     }
 
     // arguments of function call = 'use' set
     @Override
-    public Set<String> visitCall(simpleCParser.CallContext ctx) {
-        Set<String> used = defaultResult();
+    public Void visitCall(simpleCParser.CallContext ctx) {
+        addCallee(symbols.intern(ctx.ID().getSymbol(), text, offset));
         if (ctx.argList() != null) {
-            used.addAll(visit(ctx.argList()));
+            visit(ctx.argList());
         }
-        return used;
+        return null;
     }
-}
\ No newline at end of file
+}
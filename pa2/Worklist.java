@@ -0,0 +1,63 @@
+/**
+ * Worklist: priority queue of blocks ordered by their postorder number.
+ * Binary min-heap over the numbers plus an in-queue bit per number:
+ * add/poll are O(log n), contains is O(1).
+ */
+public class Worklist {
+    private final boolean[] inQueue;
+    private final int[] heap;
+    private int size = 0;
+
+    // numbers are 0 .. capacity-1
+    Worklist(int capacity) {
+        this.inQueue = new boolean[capacity];
+        this.heap = new int[capacity];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int n) {
+        return inQueue[n];
+    }
+
+    void add(int n) {
+        if (inQueue[n]) return;
+        inQueue[n] = true;
+
+        // sift up
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= n) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = n;
+    }
+
+    int poll() {
+        int top = heap[0];
+        int last = heap[--size];
+
+        // sift down
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (last <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+
+        inQueue[top] = false;
+        return top;
+    }
+}
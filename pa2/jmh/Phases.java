@@ -0,0 +1,52 @@
+package jmh;
+
+/**
+ * Phases: the pipeline steps the JMH benchmarks time, one call each.
+ * JMH does not accept benchmarks in the default package, and named packages
+ * cannot see the pipeline classes, so the default-package JmhPhases
+ * implements this interface and the benchmarks load it by name. Values are
+ * opaque to the benchmarks and handed from one phase to the next.
+ */
+public interface Phases {
+
+    static Phases load() {
+        try {
+            return (Phases) Class.forName("JmhPhases").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("JmhPhases not on the classpath", e);
+        }
+    }
+
+    /** Synthetic simpleC source, see ProgramGenerator. */
+    String generate(int functions, int statements, int depth, double loopDensity, int vars, long seed);
+
+    /** Lexes the whole source into a token stream. */
+    Object lex(String source);
+
+    /** Parses a token stream from lex() (two-stage SLL/LL); the stream is rewound first. */
+    Object parse(Object tokens);
+
+    /** VariableVisitor over the whole tree: every used variable and callee. */
+    Object collectVariables(Object tree);
+
+    /** CFG of every function with all post-processing, as the drivers build it. */
+    Object buildCfg(Object tree);
+
+    /** CFG of every function before post-processing. */
+    Object buildRawCfg(Object tree);
+
+    /** Post-processing passes, in pipeline order; each takes the previous pass's output. */
+    void linkExitBlocks(Object cfg);
+
+    void mergeEmptyBlocks(Object cfg);
+
+    void removeDeadBlocks(Object cfg);
+
+    void renumberBlocks(Object cfg);
+
+    /** CompactCFG of every function of a finished CFG (not cached). */
+    Object compact(Object cfg);
+
+    /** Liveness fixpoint of every function of a finished CFG. */
+    Object solveLiveness(Object cfg);
+}
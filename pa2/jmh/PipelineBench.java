@@ -0,0 +1,154 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH suite for the CFG/DFA pipeline on ProgramGenerator input:
+ * lexing, parsing, VariableVisitor, CFG construction, each post-processing
+ * pass and the liveness fixpoint, measured separately. Program shape comes
+ * from the @Param fields (override with -p name=value); run with -prof gc
+ * for allocation rates next to the timings (see 'make bench_jmh').
+ * The pass* timings exclude their per-invocation setup, but -prof gc does
+ * not: their alloc.rate.norm includes one raw CFG build (compare cfgRaw).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBench {
+
+    @Param({"64"})
+    public int functions;
+
+    @Param({"200"})
+    public int statements;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"0.3"})
+    public double loopDensity;
+
+    @Param({"16"})
+    public int vars;
+
+    Phases phases;
+    String source;
+    Object tokens;
+    Object tree;
+    Object cfg; // finished CFG, for compaction and liveness
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        phases = Phases.load();
+        source = phases.generate(functions, statements, depth, loopDensity, vars, 42);
+        tokens = phases.lex(source);
+        tree = phases.parse(tokens);
+        cfg = phases.buildCfg(tree);
+    }
+
+    /** Raw CFG, advanced to just before the pass under test (fresh for every call). */
+    @State(Scope.Thread)
+    public static class BeforePass {
+        Object cfg;
+
+        void build(PipelineBench bench, int passesDone) {
+            Phases p = bench.phases;
+            cfg = p.buildRawCfg(bench.tree);
+            if (passesDone > 0) p.linkExitBlocks(cfg);
+            if (passesDone > 1) p.mergeEmptyBlocks(cfg);
+            if (passesDone > 2) p.removeDeadBlocks(cfg);
+        }
+    }
+
+    public static class BeforeLink extends BeforePass {
+        @Setup(Level.Invocation)
+        public void setUp(PipelineBench bench) {
+            build(bench, 0);
+        }
+    }
+
+    public static class BeforeMerge extends BeforePass {
+        @Setup(Level.Invocation)
+        public void setUp(PipelineBench bench) {
+            build(bench, 1);
+        }
+    }
+
+    public static class BeforeRemoveDead extends BeforePass {
+        @Setup(Level.Invocation)
+        public void setUp(PipelineBench bench) {
+            build(bench, 2);
+        }
+    }
+
+    public static class BeforeRenumber extends BeforePass {
+        @Setup(Level.Invocation)
+        public void setUp(PipelineBench bench) {
+            build(bench, 3);
+        }
+    }
+
+    @Benchmark
+    public Object lex() {
+        return phases.lex(source);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return phases.parse(tokens);
+    }
+
+    @Benchmark
+    public Object collectVariables() {
+        return phases.collectVariables(tree);
+    }
+
+    @Benchmark
+    public Object cfgRaw() {
+        return phases.buildRawCfg(tree);
+    }
+
+    @Benchmark
+    public Object cfgFull() {
+        return phases.buildCfg(tree);
+    }
+
+    @Benchmark
+    public Object passLinkExit(BeforeLink state) {
+        phases.linkExitBlocks(state.cfg);
+        return state.cfg;
+    }
+
+    @Benchmark
+    public Object passMergeEmpty(BeforeMerge state) {
+        phases.mergeEmptyBlocks(state.cfg);
+        return state.cfg;
+    }
+
+    @Benchmark
+    public Object passRemoveDead(BeforeRemoveDead state) {
+        phases.removeDeadBlocks(state.cfg);
+        return state.cfg;
+    }
+
+    @Benchmark
+    public Object passRenumber(BeforeRenumber state) {
+        phases.renumberBlocks(state.cfg);
+        return state.cfg;
+    }
+
+    @Benchmark
+    public Object compact() {
+        return phases.compact(cfg);
+    }
+
+    @Benchmark
+    public Object liveness() {
+        return phases.solveLiveness(cfg);
+    }
+}
@@ -0,0 +1,9 @@
+int main() {
+    int x;
+    int a;
+    int b;
+    a = 1;
+    b = 2;
+    x = a /* café */ + b;
+    return x;
+}
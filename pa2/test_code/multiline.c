@@ -0,0 +1,35 @@
+// Conditions and statements that span several lines.
+int g = 1;
+
+int conds(int a,
+          int b) {
+    int x, y;
+    x = a +
+        b;
+    if (x + y >
+        b) {
+        y = x;
+    } else {
+        y = 0 -
+            x;
+    }
+    if (a ==
+        b) {
+        g = f(x,
+              y);
+    }
+    while (x <
+           10) {
+        x = x + 1;
+    }
+    for (y = 0; y <
+         x; y = y + 1) {
+        x = x - y;
+    }
+    return x +
+           y;
+}
+
+int f(int p, int q) {
+    return p;
+}